@@ -0,0 +1,77 @@
+package com.example.todoapp.bench;
+
+import com.example.todoapp.entity.Todo;
+import org.apache.solr.common.SolrDocument;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+// ベンチマーク用のテストデータ
+// 実際の検索結果に近いサイズ（タイトル 10〜40 文字、説明 0〜400 文字）を固定シードで作る
+final class BenchmarkData {
+
+    private static final String ASCII = "abcdefghijklmnopqrstuvwxyz ABCDEFGHIJKLMNOPQRSTUVWXYZ 0123456789 ";
+    private static final String CJK = "買い物牛乳卵パン会議資料作成明日までに提出する確認お願いします"
+            + "あいうえおかきくけこさしすせそたちつてとなにぬねのはひふへほまみむめもやゆよらりるれろわをん"
+            + "アイウエオカキクケコサシスセソタチツテトナニヌネノ、。「」・ー";
+
+    private BenchmarkData() {
+    }
+
+    static List<Todo> todos(int count, String textKind) {
+        Random random = new Random(42);
+        String alphabet = alphabet(textKind);
+        long base = 1_700_000_000_000L;
+        List<Todo> todos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Todo todo = new Todo(text(random, alphabet, 10, 40), text(random, alphabet, 0, 400), random.nextBoolean());
+            todo.setId((long) i + 1);
+            todo.setCreatedAt(new Date(base + i * 60_000L));
+            todo.setUpdatedAt(new Date(base + i * 60_000L + random.nextInt(86_400_000)));
+            todos.add(todo);
+        }
+        return todos;
+    }
+
+    // Solr から返ってくるドキュメントを再現する
+    // shape=single: 単一値（javabin の通常の形）/ shape=multi: 値が List で日付が文字列（JSON レスポンスや multiValued の形）
+    static List<SolrDocument> solrDocuments(int count, String textKind, String shape) {
+        boolean multi = "multi".equals(shape);
+        List<SolrDocument> docs = new ArrayList<>(count);
+        for (Todo todo : todos(count, textKind)) {
+            SolrDocument doc = new SolrDocument();
+            put(doc, "id", String.valueOf(todo.getId()), multi);
+            put(doc, "title", todo.getTitle(), multi);
+            put(doc, "description", todo.getDescription(), multi);
+            put(doc, "completed", todo.isCompleted(), multi);
+            put(doc, "createdAt", multi ? todo.getCreatedAt().toInstant().toString() : todo.getCreatedAt(), multi);
+            put(doc, "updatedAt", multi ? todo.getUpdatedAt().toInstant().toString() : todo.getUpdatedAt(), multi);
+            put(doc, "title_strnew", todo.getTitle(), multi);
+            docs.add(doc);
+        }
+        return docs;
+    }
+
+    private static void put(SolrDocument doc, String name, Object value, boolean multi) {
+        doc.setField(name, multi ? List.of(value) : value);
+    }
+
+    private static String alphabet(String textKind) {
+        return switch (textKind) {
+            case "ascii" -> ASCII;
+            case "cjk" -> CJK;
+            default -> ASCII + CJK; // mixed
+        };
+    }
+
+    private static String text(Random random, String alphabet, int minLength, int maxLength) {
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
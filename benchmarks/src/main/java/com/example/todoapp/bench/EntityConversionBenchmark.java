@@ -0,0 +1,57 @@
+package com.example.todoapp.bench;
+
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.service.SolrTodoItemMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 登録・更新・再インデックス時の Todo → SolrTodoItem → SolrInputDocument の変換
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityConversionBenchmark {
+
+    // 1件（画面からの登録）と再インデックスの1チャンク分
+    @Param({"1", "1000"})
+    public int count;
+
+    @Param({"ascii", "cjk"})
+    public String textKind;
+
+    private List<Todo> todos;
+
+    @Setup
+    public void setUp() {
+        todos = BenchmarkData.todos(count, textKind);
+    }
+
+    @Benchmark
+    public void toSolrTodoItem(Blackhole bh) {
+        for (Todo todo : todos) {
+            bh.consume(SolrTodoItemMapper.toSolrTodoItem(todo));
+        }
+    }
+
+    @Benchmark
+    public void toSolrInputDocument(Blackhole bh) {
+        for (Todo todo : todos) {
+            bh.consume(SolrTodoItemMapper.toSolrInputDocument(SolrTodoItemMapper.toSolrTodoItem(todo)));
+        }
+    }
+}
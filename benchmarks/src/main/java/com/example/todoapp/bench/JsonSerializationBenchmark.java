@@ -0,0 +1,67 @@
+package com.example.todoapp.bench;
+
+import com.example.todoapp.config.ApiFormatConfig;
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.SolrTodoItem;
+import com.example.todoapp.service.SolrTodoItemMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// API のレスポンス（List<Todo> / List<SolrTodoItem>）の JSON 変換
+// ObjectMapper は Spring Boot と同じくアプリ全体で1つを使い回す前提（設定は WireFormatBenchmark の json と同じ）
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"50", "500"})
+    public int count;
+
+    @Param({"ascii", "cjk"})
+    public String textKind;
+
+    private ObjectWriter writer;
+    private List<Todo> todos;
+    private List<SolrTodoItem> items;
+
+    @Setup
+    public void setUp() {
+        // Spring Boot / ApiFormatConfig と同じく、日付は ISO 8601 の文字列、ToDo には fields フィルター（指定なし＝全部）
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .modulesToInstall(ApiFormatConfig.fieldsFilterModule())
+                .build();
+        writer = mapper.writer(ApiFormatConfig.fieldsFilter(null));
+        todos = BenchmarkData.todos(count, textKind);
+        items = todos.stream().map(SolrTodoItemMapper::toSolrTodoItem).toList();
+    }
+
+    @Benchmark
+    public byte[] todos() throws Exception {
+        return writer.writeValueAsBytes(todos);
+    }
+
+    @Benchmark
+    public byte[] solrTodoItems() throws Exception {
+        return writer.writeValueAsBytes(items);
+    }
+}
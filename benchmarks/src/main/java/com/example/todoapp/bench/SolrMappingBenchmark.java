@@ -0,0 +1,84 @@
+package com.example.todoapp.bench;
+
+import com.example.todoapp.model.SolrTodoItem;
+import com.example.todoapp.service.SolrTodoItemMapper;
+import org.apache.solr.common.SolrDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 検索結果（SolrDocument）→ SolrTodoItem の変換
+// 1回の呼び出し = 1ページ分（rows 件）の変換
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolrMappingBenchmark {
+
+    @Param({"20", "500"})
+    public int rows;
+
+    @Param({"ascii", "cjk"})
+    public String textKind;
+
+    // single: 単一値 / multi: List に包まれた値と文字列の日付（instanceof List と Instant.parse の分岐）
+    @Param({"single", "multi"})
+    public String shape;
+
+    private List<SolrDocument> docs;
+    private List<SolrDocument> summaryDocs; // fl=SUMMARY_FIELDS で取得したときの形
+
+    @Setup
+    public void setUp() {
+        docs = BenchmarkData.solrDocuments(rows, textKind, shape);
+        summaryDocs = BenchmarkData.solrDocuments(rows, textKind, shape);
+        for (SolrDocument doc : summaryDocs) {
+            doc.keySet().retainAll(List.of(SolrTodoItemMapper.SUMMARY_FIELDS.split(",")));
+        }
+    }
+
+    @Benchmark
+    public void toSolrTodoItem(Blackhole bh) {
+        for (SolrDocument doc : docs) {
+            bh.consume(SolrTodoItemMapper.toSolrTodoItem(doc));
+        }
+    }
+
+    // SolrTodoService.mapResults と同じく、件数ぶんの大きさで作ったリストにループで詰める形
+    @Benchmark
+    public List<SolrTodoItem> toSolrTodoItemList() {
+        List<SolrTodoItem> items = new ArrayList<>(docs.size());
+        for (SolrDocument doc : docs) {
+            items.add(SolrTodoItemMapper.toSolrTodoItem(doc));
+        }
+        return items;
+    }
+
+    // 比較用：stream で List を作る形（mapResults に変える前の形）
+    @Benchmark
+    public List<SolrTodoItem> toSolrTodoItemListStream() {
+        return docs.stream().map(SolrTodoItemMapper::toSolrTodoItem).toList();
+    }
+
+    @Benchmark
+    public void toSolrTodoSummary(Blackhole bh) {
+        for (SolrDocument doc : summaryDocs) {
+            bh.consume(SolrTodoItemMapper.toSolrTodoSummary(doc));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.todoapp.bench;
+
+import com.example.todoapp.config.ApiFormatConfig;
+import com.example.todoapp.entity.Todo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// API の一覧（List<Todo>）のレスポンスの形式ごとの比較（ApiFormatConfig と同じ設定の ObjectMapper）
+// format: json / cbor / smile、fields: all（全部）/ summary（fields=id,title,completed）
+// serializeGzip は server.compression（gzip の既定レベル）まで含めた時間
+// 大きさ（圧縮前・gzip 後のバイト数）は組み合わせごとに最初に1行出す
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final Set<String> SUMMARY_FIELDS = Set.of("id", "title", "completed");
+
+    @Param({"50", "500"})
+    public int count;
+
+    @Param({"ascii", "cjk"})
+    public String textKind;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"all", "summary"})
+    public String fields;
+
+    private ObjectWriter writer;
+    private List<Todo> todos;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+        // Spring Boot と同じく日付は ISO 8601 の文字列
+        ObjectMapper mapper = builder
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .modulesToInstall(ApiFormatConfig.fieldsFilterModule())
+                .build();
+        writer = mapper.writer(ApiFormatConfig.fieldsFilter("summary".equals(fields) ? SUMMARY_FIELDS : null));
+        todos = BenchmarkData.todos(count, textKind);
+
+        System.out.printf("payload format=%s fields=%s count=%d text=%s: %d bytes, gzip %d bytes%n",
+                format, fields, count, textKind, serialize().length, serializeGzip().length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(todos);
+    }
+
+    @Benchmark
+    public byte[] serializeGzip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            writer.writeValue(gzip, todos);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.todoapp.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// 負荷試験用の読み取りレプリカ。組み込みPostgreSQL（zonky）のプライマリからストリーミングレプリケーションするスタンバイを作る
+// zonky には pg_basebackup が入っていないので、pg_start_backup / pg_stop_backup の間にデータディレクトリをコピーして作る
+// レプリケーションスロットでWALを確保しておくので、コピー中の変更もスタンバイ起動後に受け取れる
+final class EmbeddedPostgresReplica implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedPostgresReplica.class);
+    // コピーしないファイル（プライマリの実行中の状態）
+    private static final Set<String> EXCLUDED = Set.of("postmaster.pid", "postmaster.opts", "epg-lock");
+
+    private final EmbeddedPostgres postgres;
+    private final Path dataDirectory;
+
+    private EmbeddedPostgresReplica(EmbeddedPostgres postgres, Path dataDirectory) {
+        this.postgres = postgres;
+        this.dataDirectory = dataDirectory;
+    }
+
+    static EmbeddedPostgresReplica start(EmbeddedPostgres primary, Path primaryDataDirectory, int number)
+            throws IOException, SQLException {
+        String slot = "loadtest_replica_" + number;
+        Path dataDirectory = Files.createTempDirectory("todo-loadtest-replica");
+
+        try (Connection connection = primary.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("select pg_create_physical_replication_slot('" + slot + "', true)");
+            statement.execute("select pg_start_backup('" + slot + "', true)");
+            try {
+                copyDataDirectory(primaryDataDirectory, dataDirectory);
+            } finally {
+                statement.execute("select pg_stop_backup()");
+            }
+        }
+
+        Files.createFile(dataDirectory.resolve("standby.signal"));
+        Files.writeString(dataDirectory.resolve("postgresql.auto.conf"),
+                "primary_conninfo = 'host=localhost port=" + primary.getPort() + " user=postgres'\n"
+                        + "primary_slot_name = '" + slot + "'\n");
+
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+                .setDataDirectory(dataDirectory)
+                .setCleanDataDirectory(false) // initdb せずにコピーしたデータで起動する
+                .start();
+        logger.info("Embedded Postgres replica {} streaming from port {} on port {}",
+                number, primary.getPort(), postgres.getPort());
+        return new EmbeddedPostgresReplica(postgres, dataDirectory);
+    }
+
+    String jdbcUrl() {
+        return postgres.getJdbcUrl("postgres", "postgres");
+    }
+
+    @Override
+    public void close() throws IOException {
+        postgres.close();
+        try (Stream<Path> files = Files.walk(dataDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // pg_wal の中身はコピーせず、スタンバイがスロットからストリーミングで受け取る
+    private static void copyDataDirectory(Path source, Path target) throws IOException {
+        try (Stream<Path> files = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Path relative = source.relativize(path);
+                if (EXCLUDED.contains(relative.toString())
+                        || (relative.getNameCount() > 1 && relative.getName(0).toString().equals("pg_wal"))) {
+                    continue;
+                }
+                Path destination = target.resolve(relative.toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(destination);
+                } else {
+                    try {
+                        Files.copy(path, destination);
+                    } catch (NoSuchFileException e) {
+                        // コピー中に消えた一時ファイル
+                    }
+                }
+            }
+        }
+        Files.createDirectories(target.resolve("pg_wal").resolve("archive_status"));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.todoapp.loadtest;
+
+import org.apache.solr.embedded.JettyConfig;
+import org.apache.solr.embedded.JettySolrRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// 負荷試験用のSolr。一時ディレクトリに todo_items コアを作り、同じプロセスの Jetty で HTTP（HTTP/2）を受ける
+// スキーマはリポジトリの managed-schema.xml をそのまま使うので、アプリからは本物のSolrと同じに見える
+final class EmbeddedSolr implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedSolr.class);
+    private static final String CORE_NAME = "todo_items";
+    // スキーマが参照する辞書ファイル（ストップワードなど）
+    private static final Pattern RESOURCE_ATTRIBUTE =
+            Pattern.compile("\\b(?:words|synonyms|protected|dictionary|tags|articles|mapping)=\"([^\"]+)\"");
+
+    private final Path solrHome;
+    private final JettySolrRunner jetty;
+
+    private EmbeddedSolr(Path solrHome, JettySolrRunner jetty) {
+        this.solrHome = solrHome;
+        this.jetty = jetty;
+    }
+
+    static EmbeddedSolr start(Path schema) throws Exception {
+        Path solrHome = Files.createTempDirectory("todo-loadtest-solr");
+        Path coreDir = solrHome.resolve(CORE_NAME);
+        Path conf = coreDir.resolve("conf");
+        Files.createDirectories(conf);
+
+        copyResource("/loadtest/solr.xml", solrHome.resolve("solr.xml"));
+        copyResource("/loadtest/solrconfig.xml", conf.resolve("solrconfig.xml"));
+        Files.writeString(coreDir.resolve("core.properties"), "name=" + CORE_NAME + "\n");
+        Files.copy(schema, conf.resolve("schema.xml"));
+        createReferencedResources(Files.readString(schema, StandardCharsets.UTF_8), conf);
+
+        if (System.getProperty("solr.log.dir") == null) {
+            System.setProperty("solr.log.dir", solrHome.resolve("logs").toString());
+        }
+        JettySolrRunner jetty = new JettySolrRunner(solrHome.toString(), JettyConfig.builder()
+                .setPort(0)
+                .setContext("/solr")
+                .stopAtShutdown(true)
+                .build());
+        jetty.start();
+        // スキーマの誤りなどでコアが読み込めなかったら、負荷をかける前に止める
+        Map<String, ?> failures = jetty.getCoreContainer().getCoreInitFailures();
+        if (!failures.isEmpty()) {
+            jetty.stop();
+            throw new IllegalStateException("Embedded Solr failed to load core(s): " + failures.keySet());
+        }
+        logger.info("Embedded Solr started at {} (core {}, schema {})", jetty.getBaseUrl(), CORE_NAME, schema);
+        return new EmbeddedSolr(solrHome, jetty);
+    }
+
+    // SolrConfig の solr.host に渡すURL（末尾に /solr が付く）
+    String baseUrl() {
+        return jetty.getBaseUrl().toString();
+    }
+
+    @Override
+    public void close() throws Exception {
+        jetty.stop();
+        try (Stream<Path> files = Files.walk(solrHome)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // 日本語のストップワード・品詞は Lucene（kuromoji）の既定のものを使い、それ以外の言語は空ファイルにする
+    // text_ja 以外の型はアプリでは使っていないので、負荷試験の結果には影響しない
+    private static void createReferencedResources(String schemaXml, Path conf) throws IOException {
+        Matcher matcher = RESOURCE_ATTRIBUTE.matcher(schemaXml);
+        while (matcher.find()) {
+            for (String name : matcher.group(1).split(",")) {
+                Path target = conf.resolve(name.trim());
+                if (Files.exists(target)) {
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                switch (target.getFileName().toString()) {
+                    case "stopwords_ja.txt" -> copyResource("/org/apache/lucene/analysis/ja/stopwords.txt", target);
+                    case "stoptags_ja.txt" -> copyResource("/org/apache/lucene/analysis/ja/stoptags.txt", target);
+                    default -> Files.createFile(target);
+                }
+            }
+        }
+    }
+
+    private static void copyResource(String resource, Path target) throws IOException {
+        try (InputStream in = EmbeddedSolr.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Resource not found on classpath: " + resource);
+            }
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
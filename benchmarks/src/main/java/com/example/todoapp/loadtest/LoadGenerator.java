@@ -0,0 +1,256 @@
+package com.example.todoapp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// アプリのAPIに混合ワークロード（一覧・取得・検索・登録・更新・削除）を流す
+// ・rate > 0: 決まった間隔で送る（オープンモデル）。同時に処理中にできるのは concurrency 件まで
+// ・rate = 0: concurrency 本のスレッドが応答を待っては次を送る（クローズドモデル）
+final class LoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final int BULK_CHUNK = 1000; // todo.bulk.max-operations の既定値
+    private static final String[] WORDS = {
+            "買い物", "会議", "資料", "報告書", "掃除", "予約", "支払い", "確認", "連絡", "準備",
+            "請求書", "発注", "面談", "レビュー", "打ち合わせ", "提出", "更新", "洗濯", "病院", "銀行",
+            "meeting", "report", "invoice", "review", "deploy", "release", "backup", "email", "call", "design"
+    };
+    private static final String[] SORTS = {"relevance", "created_desc", "updated_desc"};
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final URI baseUri;
+    private final LoadTestOptions options;
+    private final Operation[] weightedOperations;
+    // 登録済みのID（取得・更新・削除の対象）
+    private final List<Long> ids = new ArrayList<>();
+    private volatile String lastCursor;
+
+    LoadGenerator(URI baseUri, LoadTestOptions options) {
+        this.baseUri = baseUri;
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        List<Operation> weighted = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> entry : options.mix().entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                weighted.add(entry.getKey());
+            }
+        }
+        this.weightedOperations = weighted.toArray(new Operation[0]);
+    }
+
+    // 一括APIで初期データを入れる
+    void seed(int count) throws IOException, InterruptedException {
+        for (int done = 0; done < count; done += BULK_CHUNK) {
+            ArrayNode operations = objectMapper.createArrayNode();
+            for (int i = done; i < Math.min(count, done + BULK_CHUNK); i++) {
+                ObjectNode op = randomTodo().put("op", "create");
+                operations.add(op);
+            }
+            HttpResponse<byte[]> response = send(HttpRequest.newBuilder(uri("/api/todos/bulk"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(operations))));
+            if (response.statusCode() != 200) {
+                throw new IOException("Seeding failed with HTTP " + response.statusCode());
+            }
+            for (JsonNode result : objectMapper.readTree(response.body())) {
+                addId(result.path("id").asLong());
+            }
+        }
+        logger.info("Seeded {} todos", count);
+    }
+
+    // 初期データがSolrに反映される（アウトボックス → インデックス登録キュー → commitWithin）まで待つ
+    void awaitIndexed(long expected, Duration timeout) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long numFound = -1;
+        while (System.nanoTime() < deadline) {
+            HttpResponse<byte[]> response = send(HttpRequest.newBuilder(uri("/api/todos/query?rows=1")).GET());
+            if (response.statusCode() == 200) {
+                numFound = objectMapper.readTree(response.body()).path("numFound").asLong();
+                if (numFound >= expected) {
+                    logger.info("Solr has {} documents", numFound);
+                    return;
+                }
+            }
+            Thread.sleep(500);
+        }
+        logger.warn("Only {} of {} documents were visible in Solr after {}; continuing anyway", numFound, expected, timeout);
+    }
+
+    // seconds 秒間負荷をかけ、結果を report に記録する（処理中のリクエストが終わるまで待って戻る）
+    void run(int seconds, LoadReport report) {
+        report.start();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (options.rate() > 0) {
+                Semaphore inFlight = new Semaphore(options.concurrency());
+                long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate();
+                for (long i = 0; ; i++) {
+                    long intended = start + i * intervalNanos;
+                    if (intended >= end) {
+                        break;
+                    }
+                    long wait;
+                    while ((wait = intended - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    Operation op = nextOperation();
+                    executor.execute(() -> {
+                        inFlight.acquireUninterruptibly();
+                        try {
+                            execute(op, intended, report);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            } else {
+                for (int i = 0; i < options.concurrency(); i++) {
+                    executor.execute(() -> {
+                        while (System.nanoTime() < end) {
+                            execute(nextOperation(), System.nanoTime(), report);
+                        }
+                    });
+                }
+            }
+        }
+        report.finish();
+    }
+
+    private void execute(Operation op, long intendedNanos, LoadReport report) {
+        int status;
+        try {
+            status = switch (op) {
+                case LIST -> list();
+                case GET -> send(HttpRequest.newBuilder(uri("/api/todos/" + randomId())).GET()).statusCode();
+                case SEARCH -> send(HttpRequest.newBuilder(uri("/api/todos/search?rows=20&q=" + encode(randomWord()))).GET()).statusCode();
+                case QUERY -> query();
+                case CREATE -> create();
+                case TOGGLE -> send(HttpRequest.newBuilder(uri("/api/todos/" + randomId()))
+                        .PUT(HttpRequest.BodyPublishers.noBody())).statusCode();
+                case DELETE -> send(HttpRequest.newBuilder(uri("/api/todos/" + removeRandomId())).DELETE()).statusCode();
+            };
+        } catch (IOException e) {
+            status = -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        report.record(op, System.nanoTime() - intendedNanos, status);
+    }
+
+    // 先頭ページか、前回の続きのページ
+    private int list() throws IOException, InterruptedException {
+        String cursor = lastCursor;
+        String path = "/api/todos?limit=50";
+        if (cursor != null && ThreadLocalRandom.current().nextBoolean()) {
+            path += "&cursor=" + encode(cursor);
+        }
+        HttpResponse<byte[]> response = send(HttpRequest.newBuilder(uri(path)).GET());
+        lastCursor = response.headers().firstValue("X-Next-Cursor").orElse(null);
+        return response.statusCode();
+    }
+
+    private int query() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder path = new StringBuilder("/api/todos/query?rows=20&sort=").append(SORTS[random.nextInt(SORTS.length)]);
+        if (random.nextBoolean()) {
+            path.append("&q=").append(encode(randomWord()));
+        }
+        if (random.nextBoolean()) {
+            path.append("&completed=").append(random.nextBoolean());
+        }
+        return send(HttpRequest.newBuilder(uri(path.toString())).GET()).statusCode();
+    }
+
+    private int create() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = send(HttpRequest.newBuilder(uri("/api/todos"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(randomTodo()))));
+        if (response.statusCode() == 201) {
+            addId(objectMapper.readTree(response.body()).path("id").asLong());
+        }
+        return response.statusCode();
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private Operation nextOperation() {
+        return weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+    }
+
+    private ObjectNode randomTodo() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ObjectNode todo = objectMapper.createObjectNode();
+        todo.put("title", randomWord() + " " + randomWord() + " " + random.nextInt(1000));
+        StringBuilder description = new StringBuilder();
+        for (int i = random.nextInt(20); i > 0; i--) {
+            description.append(randomWord()).append(i % 5 == 0 ? "。" : "、");
+        }
+        todo.put("description", description.toString());
+        todo.put("completed", random.nextInt(4) == 0);
+        return todo;
+    }
+
+    private static String randomWord() {
+        return WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)];
+    }
+
+    private synchronized void addId(long id) {
+        ids.add(id);
+    }
+
+    private synchronized long randomId() {
+        return ids.isEmpty() ? 0 : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    // 末尾と入れ替えて消す（順番は問わない）
+    private synchronized long removeRandomId() {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int index = ThreadLocalRandom.current().nextInt(ids.size());
+        long id = ids.get(index);
+        ids.set(index, ids.get(ids.size() - 1));
+        ids.remove(ids.size() - 1);
+        return id;
+    }
+
+    private URI uri(String pathAndQuery) {
+        return baseUri.resolve(pathAndQuery);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
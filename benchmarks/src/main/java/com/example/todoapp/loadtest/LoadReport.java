@@ -0,0 +1,120 @@
+package com.example.todoapp.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// 操作ごとのレイテンシ（HdrHistogram、マイクロ秒）と件数の集計
+// レイテンシは「本来送るはずだった時刻」から数えるので、詰まって送信が遅れた分も含まれる（coordinated omission 対策）
+final class LoadReport {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private volatile long startedNanos;
+    private volatile long finishedNanos;
+
+    LoadReport() {
+        for (Operation op : Operation.values()) {
+            stats.put(op, new Stats());
+        }
+    }
+
+    void start() {
+        startedNanos = System.nanoTime();
+    }
+
+    void finish() {
+        finishedNanos = System.nanoTime();
+    }
+
+    void record(Operation op, long latencyNanos, int status) {
+        Stats s = stats.get(op);
+        s.histogram.recordValue(Math.min(MAX_LATENCY_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos))));
+        if (status >= 500 || status < 0) {
+            s.errors.increment(); // status < 0 は接続エラー・タイムアウト
+        } else if (status >= 400) {
+            s.clientErrors.increment(); // 削除済みIDへの操作（404）など
+        }
+    }
+
+    void print(PrintStream out, LoadTestOptions options) {
+        double seconds = elapsedSeconds();
+        out.println();
+        out.printf("Load test: %ds, rate=%s, concurrency=%d, seed=%d, replicas=%d%n", options.durationSeconds(),
+                options.rate() > 0 ? options.rate() + "/s" : "unbounded", options.concurrency(), options.seedTodos(),
+                options.replicas());
+        out.printf("%-8s %9s %9s %7s %7s %9s %9s %9s %9s %9s%n",
+                "op", "count", "req/s", "errors", "4xx", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram reads = new Histogram(MAX_LATENCY_MICROS, 3);
+        Histogram writes = new Histogram(MAX_LATENCY_MICROS, 3);
+        Histogram all = new Histogram(MAX_LATENCY_MICROS, 3);
+        long errors = 0;
+        long clientErrors = 0;
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            Stats s = entry.getValue();
+            if (s.histogram.getTotalCount() == 0) {
+                continue;
+            }
+            printRow(out, entry.getKey().name().toLowerCase(), s.histogram, s.errors.sum(), s.clientErrors.sum(), seconds);
+            (entry.getKey().isWrite() ? writes : reads).add(s.histogram);
+            all.add(s.histogram);
+            errors += s.errors.sum();
+            clientErrors += s.clientErrors.sum();
+        }
+        out.println();
+        printRow(out, "reads", reads, -1, -1, seconds);
+        printRow(out, "writes", writes, -1, -1, seconds);
+        printRow(out, "total", all, errors, clientErrors, seconds);
+    }
+
+    void writeCsv(Path file) throws IOException {
+        double seconds = elapsedSeconds();
+        List<String> lines = new ArrayList<>();
+        lines.add("op,count,rps,errors,client_errors,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            Histogram h = entry.getValue().histogram;
+            if (h.getTotalCount() == 0) {
+                continue;
+            }
+            lines.add(String.format("%s,%d,%.1f,%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f",
+                    entry.getKey().name().toLowerCase(), h.getTotalCount(), h.getTotalCount() / seconds,
+                    entry.getValue().errors.sum(), entry.getValue().clientErrors.sum(),
+                    millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(90)),
+                    millis(h.getValueAtPercentile(99)), millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue())));
+        }
+        Files.write(file, lines);
+    }
+
+    private void printRow(PrintStream out, String name, Histogram h, long errors, long clientErrors, double seconds) {
+        out.printf("%-8s %9d %9.1f %7s %7s %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, h.getTotalCount(), h.getTotalCount() / seconds,
+                errors >= 0 ? String.valueOf(errors) : "", clientErrors >= 0 ? String.valueOf(clientErrors) : "",
+                millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(90)),
+                millis(h.getValueAtPercentile(99)), millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()));
+    }
+
+    private double elapsedSeconds() {
+        return Math.max(0.001, (finishedNanos - startedNanos) / 1e9);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class Stats {
+        private final Histogram histogram = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder clientErrors = new LongAdder();
+    }
+}
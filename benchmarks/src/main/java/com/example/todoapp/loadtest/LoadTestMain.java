@@ -0,0 +1,107 @@
+package com.example.todoapp.loadtest;
+
+import com.example.todoapp.TodoApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// エンドツーエンドの負荷試験
+// 組み込みPostgreSQL（zonky）と組み込みSolr（リポジトリの managed-schema.xml）を起動し、
+// そこにつないだアプリを同じプロセスで立ち上げて、混合ワークロードのスループットとレイテンシのパーセンタイルを出す
+// --replicas=N を付けると、プライマリからレプリケーションするスタンバイを N 台立て、読み取りをそちらに振り分ける
+//
+//   mvn -B install -DskipTests && mvn -B -f benchmarks/pom.xml package
+//   java -cp benchmarks/target/benchmarks.jar com.example.todoapp.loadtest.LoadTestMain --rate=300 --duration=60
+public class LoadTestMain {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestMain.class);
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+
+        Path postgresData = Files.createTempDirectory("todo-loadtest-postgres");
+        List<EmbeddedPostgresReplica> replicas = new ArrayList<>();
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().setDataDirectory(postgresData).start();
+             AutoCloseable closeReplicas = () -> closeAll(replicas);
+             EmbeddedSolr solr = EmbeddedSolr.start(options.schema())) {
+
+            for (int i = 1; i <= options.replicas(); i++) {
+                replicas.add(EmbeddedPostgresReplica.start(postgres, postgresData, i));
+            }
+            try (ConfigurableApplicationContext app = startApplication(postgres, replicas, solr, options)) {
+                run(app, options);
+            }
+        }
+        // Solr・アプリの非デーモンスレッドが残っていても終わらせる
+        System.exit(0);
+    }
+
+    private static void run(ConfigurableApplicationContext app, LoadTestOptions options) throws Exception {
+        int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+        LoadGenerator generator = new LoadGenerator(URI.create("http://localhost:" + port), options);
+
+        generator.seed(options.seedTodos());
+        generator.awaitIndexed(options.seedTodos(), Duration.ofMinutes(2));
+
+        if (options.warmupSeconds() > 0) {
+            logger.info("Warming up for {}s", options.warmupSeconds());
+            generator.run(options.warmupSeconds(), new LoadReport());
+        }
+
+        logger.info("Measuring for {}s", options.durationSeconds());
+        LoadReport report = new LoadReport();
+        generator.run(options.durationSeconds(), report);
+        report.print(System.out, options);
+        if (options.out() != null) {
+            report.writeCsv(options.out());
+            logger.info("Wrote results to {}", options.out());
+        }
+    }
+
+    private static void closeAll(List<EmbeddedPostgresReplica> replicas) throws IOException {
+        for (EmbeddedPostgresReplica replica : replicas) {
+            replica.close();
+        }
+    }
+
+    // application.properties より優先させるため、設定はコマンドライン引数として渡す
+    private static ConfigurableApplicationContext startApplication(EmbeddedPostgres postgres,
+                                                                   List<EmbeddedPostgresReplica> replicas,
+                                                                   EmbeddedSolr solr, LoadTestOptions options) {
+        String jdbcUrl = postgres.getJdbcUrl("postgres", "postgres");
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.url", jdbcUrl + (jdbcUrl.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true");
+        properties.put("spring.datasource.username", "postgres");
+        properties.put("spring.datasource.password", "");
+        if (!replicas.isEmpty()) {
+            properties.put("todo.datasource.replica.urls",
+                    replicas.stream().map(EmbeddedPostgresReplica::jdbcUrl).collect(Collectors.joining(",")));
+        }
+        properties.put("solr.host", solr.baseUrl());
+        properties.put("server.port", "0");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.org.apache.solr", "WARN");
+        properties.put("logging.level.org.eclipse.jetty", "WARN");
+        properties.put("logging.level.io.zonky", "WARN");
+        properties.putAll(options.appProperties());
+
+        String[] args = properties.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+        return SpringApplication.run(TodoApplication.class, args);
+    }
+}
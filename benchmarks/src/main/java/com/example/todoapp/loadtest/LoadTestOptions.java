@@ -0,0 +1,101 @@
+package com.example.todoapp.loadtest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 負荷試験のオプション（--名前=値）
+// ここに無い --xxx=yyy はそのままアプリの設定（Spring のプロパティ）として渡す
+record LoadTestOptions(
+        int durationSeconds, // 計測する時間
+        int warmupSeconds, // 計測前に同じ負荷を流す時間（結果には含めない）
+        int rate, // 1秒あたりのリクエスト数。0 のときは concurrency 本で間を空けずに投げ続ける
+        int concurrency, // 同時に処理中にできるリクエストの上限
+        int seedTodos, // 開始前に登録しておく件数
+        int replicas, // 読み取りレプリカの数（0 ならプライマリだけ）
+        Map<Operation, Integer> mix, // 操作ごとの比率
+        Path schema, // 組み込みSolrに読ませるスキーマ
+        Path out, // 結果をCSVでも書き出す先（省略可）
+        Map<String, String> appProperties) {
+
+    static final String USAGE = """
+            Usage: java -cp benchmarks/target/benchmarks.jar com.example.todoapp.loadtest.LoadTestMain [options]
+              --duration=60          計測時間（秒）
+              --warmup=15            ウォームアップ時間（秒）
+              --rate=200             1秒あたりのリクエスト数（0 = 同時実行数ぶん間を空けずに投げ続ける）
+              --concurrency=32       同時実行数の上限
+              --seed=5000            開始前に登録する件数
+              --replicas=0           読み取りレプリカ（ストリーミングレプリケーションのスタンバイ）の数
+              --mix=list:35,get:20,search:20,query:10,create:8,toggle:5,delete:2
+              --schema=managed-schema.xml
+              --out=result.csv
+              その他の --xxx=yyy はアプリの設定として渡す（例: --spring.threads.virtual.enabled=true）
+            """;
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.equals("--help") || arg.equals("-h")) {
+                System.out.print(USAGE);
+                System.exit(0);
+            }
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg + "\n" + USAGE);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        int duration = intOption(values, "duration", 60);
+        int warmup = intOption(values, "warmup", 15);
+        int rate = intOption(values, "rate", 200);
+        int concurrency = intOption(values, "concurrency", 32);
+        int seed = intOption(values, "seed", 5000);
+        int replicas = intOption(values, "replicas", 0);
+        Map<Operation, Integer> mix = parseMix(values.getOrDefault("mix",
+                "list:35,get:20,search:20,query:10,create:8,toggle:5,delete:2"));
+        values.remove("mix");
+        Path schema = values.containsKey("schema") ? Path.of(values.remove("schema")) : defaultSchema();
+        Path out = values.containsKey("out") ? Path.of(values.remove("out")) : null;
+
+        if (duration <= 0 || concurrency <= 0 || rate < 0 || seed < 0 || replicas < 0) {
+            throw new IllegalArgumentException("duration and concurrency must be positive, rate, seed and replicas must not be negative");
+        }
+        return new LoadTestOptions(duration, warmup, rate, concurrency, seed, replicas, mix, schema, out, values);
+    }
+
+    private static int intOption(Map<String, String> values, String name, int defaultValue) {
+        String value = values.remove(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                mix.put(Operation.fromName(pair[0].trim()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("Mix must contain at least one operation");
+        }
+        return mix;
+    }
+
+    // ルート（mvn を実行する場所）と benchmarks ディレクトリのどちらから起動しても見つかるようにする
+    private static Path defaultSchema() {
+        for (Path candidate : new Path[]{Path.of("managed-schema.xml"), Path.of("..", "managed-schema.xml")}) {
+            if (Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("managed-schema.xml not found; pass --schema=<path>");
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.todoapp.loadtest;
+
+import java.util.Locale;
+
+// 負荷試験で投げる操作（それぞれ1回のHTTPリクエスト）
+enum Operation {
+    LIST, // GET /api/todos（カーソルで次のページへ進むこともある）
+    GET, // GET /api/todos/{id}
+    SEARCH, // GET /api/todos/search?q=...
+    QUERY, // GET /api/todos/query（絞り込み・ファセット）
+    CREATE, // POST /api/todos
+    TOGGLE, // PUT /api/todos/{id}
+    DELETE; // DELETE /api/todos/{id}
+
+    boolean isWrite() {
+        return this == CREATE || this == TOGGLE || this == DELETE;
+    }
+
+    static Operation fromName(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.todoapp.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// 起動時間の計測
+// 組み込みPostgreSQL（zonky）を起動し、アプリを別プロセスで何度も起動して
+// プロセスを作ってから最初のリクエスト（GET /api/todos）に 200 が返るまでの時間と、そのときのRSSを測る
+// 起動のしかた（variant）を順番に入れ替えながら runs 回ずつ起動し、中央値・最小・最大を出す
+//   default  プロファイル prod（これまでどおり）
+//   lazy     プロファイル prod,fast-startup（遅延初期化・Hibernate のスキーマ検証なし）
+//   aot      lazy + Spring AOT（-Dspring.aot.enabled=true）
+//   aot-cds  aot + AppCDS（-XX:SharedArchiveFile）
+//
+//   mvn -B -Pfast-startup package -DskipTests && mvn -B install -DskipTests -o && mvn -B -f benchmarks/pom.xml package
+//   java -cp benchmarks/target/benchmarks.jar com.example.todoapp.loadtest.StartupBenchmarkMain --runs=5
+public class StartupBenchmarkMain {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupBenchmarkMain.class);
+
+    private static final String USAGE = """
+            Usage: java -cp benchmarks/target/benchmarks.jar com.example.todoapp.loadtest.StartupBenchmarkMain [options]
+              --runs=5                            variant ごとの起動回数
+              --variants=default,lazy,aot,aot-cds 計測する起動のしかた
+              --jar=target/cds/todoapp.jar        mvn -Pfast-startup package で展開した jar（同じ場所の todoapp.jsa を使う）
+              --timeout=120                       1回の起動を待つ上限（秒）
+              その他の --xxx=yyy はアプリの設定として渡す
+            """;
+
+    private static final List<String> VARIANTS = List.of("default", "lazy", "aot", "aot-cds");
+
+    record Options(int runs, List<String> variants, Path jar, int timeoutSeconds, Map<String, String> appProperties) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String arg : args) {
+                if (arg.equals("--help") || arg.equals("-h")) {
+                    System.out.print(USAGE);
+                    System.exit(0);
+                }
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg + "\n" + USAGE);
+                }
+                int eq = arg.indexOf('=');
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+            int runs = Integer.parseInt(values.getOrDefault("runs", "5"));
+            values.remove("runs");
+            List<String> variants = Arrays.stream(values.getOrDefault("variants", String.join(",", VARIANTS)).split(","))
+                    .map(String::trim).filter(v -> !v.isEmpty()).toList();
+            values.remove("variants");
+            for (String variant : variants) {
+                if (!VARIANTS.contains(variant)) {
+                    throw new IllegalArgumentException("Unknown variant: " + variant + "\n" + USAGE);
+                }
+            }
+            Path jar = values.containsKey("jar") ? Path.of(values.remove("jar")) : defaultJar();
+            int timeout = Integer.parseInt(values.getOrDefault("timeout", "120"));
+            values.remove("timeout");
+            if (runs <= 0 || variants.isEmpty() || timeout <= 0) {
+                throw new IllegalArgumentException("runs, variants and timeout must not be empty or zero");
+            }
+            return new Options(runs, variants, jar, timeout, values);
+        }
+
+        // ルートと benchmarks ディレクトリのどちらから起動しても見つかるようにする
+        private static Path defaultJar() {
+            for (Path candidate : new Path[]{Path.of("target", "cds", "todoapp.jar"), Path.of("..", "target", "cds", "todoapp.jar")}) {
+                if (Files.isRegularFile(candidate)) {
+                    return candidate;
+                }
+            }
+            throw new IllegalArgumentException("target/cds/todoapp.jar not found; run mvn -Pfast-startup package or pass --jar=<path>");
+        }
+    }
+
+    record Sample(long timeToFirstRequestMs, long rssKb) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Path archive = options.jar().resolveSibling("todoapp.jsa");
+        if (options.variants().contains("aot-cds") && !Files.isRegularFile(archive)) {
+            throw new IllegalArgumentException(archive + " not found; run mvn -Pfast-startup package");
+        }
+
+        Map<String, List<Sample>> samples = new LinkedHashMap<>();
+        options.variants().forEach(variant -> samples.put(variant, new ArrayList<>()));
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            // 1回目の起動でマイグレーションが流れるので、計測の前に一度起動しておく
+            logger.info("Warming up (schema migration)");
+            startOnce(postgres, options, "default", archive);
+            for (int run = 1; run <= options.runs(); run++) {
+                for (String variant : options.variants()) {
+                    Sample sample = startOnce(postgres, options, variant, archive);
+                    logger.info("Run {}/{} {}: {}ms, RSS {}MB", run, options.runs(), variant,
+                            sample.timeToFirstRequestMs(), sample.rssKb() / 1024);
+                    samples.get(variant).add(sample);
+                }
+            }
+        }
+        print(System.out, options, samples);
+        System.exit(0);
+    }
+
+    private static Sample startOnce(EmbeddedPostgres postgres, Options options, String variant, Path archive)
+            throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (variant.equals("aot") || variant.equals("aot-cds")) {
+            command.add("-Dspring.aot.enabled=true");
+        }
+        if (variant.equals("aot-cds")) {
+            command.add("-XX:SharedArchiveFile=" + archive.getFileName());
+            command.add("-Xlog:cds=error");
+        }
+        // CDS のアーカイブは学習実行と同じクラスパス（展開したディレクトリの中から -jar todoapp.jar）のときだけ使われる
+        command.add("-jar");
+        command.add(options.jar().getFileName().toString());
+
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.profiles.active", variant.equals("default") ? "prod" : "prod,fast-startup");
+        properties.put("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+        properties.put("spring.datasource.username", "postgres");
+        properties.put("spring.datasource.password", "");
+        properties.put("solr.host", "http://localhost:1/solr"); // 起動時には問い合わせないので、つながらない先でよい
+        properties.put("server.port", String.valueOf(port));
+        properties.put("spring.main.banner-mode", "off");
+        properties.putAll(options.appProperties());
+        properties.forEach((name, value) -> command.add("--" + name + "=" + value));
+
+        Path log = Files.createTempFile("todo-startup-" + variant, ".log");
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/todos"))
+                .timeout(Duration.ofSeconds(10)).build();
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(options.jar().toAbsolutePath().getParent().toFile())
+                .redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            long deadline = started + TimeUnit.SECONDS.toNanos(options.timeoutSeconds());
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(variant + " exited with " + process.exitValue() + "; see " + log);
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException(variant + " did not answer within " + options.timeoutSeconds() + "s; see " + log);
+                }
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                        Files.delete(log);
+                        return new Sample(elapsedMs, rssKb(process.pid()));
+                    }
+                    throw new IllegalStateException(variant + " answered " + response.statusCode() + "; see " + log);
+                } catch (ConnectException e) {
+                    Thread.sleep(5); // まだポートを開いていない
+                }
+            }
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    // Linux の /proc から常駐メモリ（VmRSS）を読む。読めなければ -1
+    private static long rssKb(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // /proc の無いOS
+        }
+        return -1;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void print(PrintStream out, Options options, Map<String, List<Sample>> samples) {
+        out.printf("Startup benchmark: %d runs per variant, jar=%s%n", options.runs(), options.jar());
+        out.printf("%-8s %9s %9s %9s %9s %9s %9s%n",
+                "variant", "ttfr p50", "ttfr min", "ttfr max", "rss p50", "rss min", "rss max");
+        samples.forEach((variant, list) -> {
+            long[] ttfr = list.stream().mapToLong(Sample::timeToFirstRequestMs).sorted().toArray();
+            long[] rss = list.stream().mapToLong(s -> s.rssKb() / 1024).sorted().toArray();
+            out.printf("%-8s %7dms %7dms %7dms %7dMB %7dMB %7dMB%n", variant,
+                    ttfr[ttfr.length / 2], ttfr[0], ttfr[ttfr.length - 1],
+                    rss[rss.length / 2], rss[0], rss[rss.length - 1]);
+        });
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.todoapp.config;
+
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.SolrTodoItem;
+import com.example.todoapp.model.SolrTodoSummary;
+import com.example.todoapp.model.TodoListItem;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+import java.util.Set;
+
+// APIのレスポンスの形式
+// ・Accept: application/cbor / application/x-jackson-smile なら同じ内容をバイナリで返す。指定が無ければ（*/* も）これまでどおり JSON
+//   どちらも Spring Boot の ObjectMapper と同じ設定（モジュール・日付の形式）で作る
+// ・ToDo（Todo / TodoListItem / SolrTodoItem / SolrTodoSummary）には fields フィルターを付けておき、
+//   fields= を指定したときだけそのプロパティに絞る（FieldsResponseBodyAdvice）。指定が無ければ全部出す
+// ・同じURLでも Accept で形式が変わるので Vary: Accept を付ける（VaryAcceptFilter）。ETag も形式ごとに変える（TodoController）
+@Configuration
+public class ApiFormatConfig implements WebMvcConfigurer {
+
+    public static final String FIELDS_FILTER = "fields";
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders;
+
+    public ApiFormatConfig(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders) {
+        this.objectMapperBuilders = objectMapperBuilders;
+    }
+
+    @Bean
+    public Module todoFieldsFilterModule() {
+        return fieldsFilterModule();
+    }
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer allFieldsByDefault() {
+        return builder -> builder.filters(fieldsFilter(null));
+    }
+
+    // 小さいレスポンスを圧縮しないように（server.compression.min-response-size が効くように）
+    @Bean
+    public FilterRegistrationBean<DeferredFlushFilter> deferredFlushFilter() {
+        FilterRegistrationBean<DeferredFlushFilter> registration = new FilterRegistrationBean<>(new DeferredFlushFilter());
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    // 304 も含めて、API のレスポンスには Vary: Accept を付ける
+    @Bean
+    public FilterRegistrationBean<VaryAcceptFilter> varyAcceptFilter() {
+        FilterRegistrationBean<VaryAcceptFilter> registration = new FilterRegistrationBean<>(new VaryAcceptFilter());
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    // Spring MVC がクラスパスを見て入れる既定のもの（Spring Boot の設定が入らない）と入れ替える
+    // どちらも JSON より後ろなので、Accept で指定されたときだけ使われる
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+                || converter instanceof MappingJackson2SmileHttpMessageConverter);
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilders.getObject().factory(new CBORFactory()).build()));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+                objectMapperBuilders.getObject().factory(new SmileFactory()).build()));
+    }
+
+    // エンティティ・モデルに Jackson の注釈を増やさないよう、mix-in でフィルターを付ける
+    public static SimpleModule fieldsFilterModule() {
+        SimpleModule module = new SimpleModule("todoFieldsFilter");
+        for (Class<?> type : List.of(Todo.class, TodoListItem.class, SolrTodoItem.class, SolrTodoSummary.class)) {
+            module.setMixInAnnotation(type, FieldsFilterMixin.class);
+        }
+        return module;
+    }
+
+    // fields が null なら全部のプロパティを出す
+    public static SimpleFilterProvider fieldsFilter(Set<String> fields) {
+        return new SimpleFilterProvider().addFilter(FIELDS_FILTER, fields == null
+                ? SimpleBeanPropertyFilter.serializeAll()
+                : SimpleBeanPropertyFilter.filterOutAllExcept(fields));
+    }
+
+    @JsonFilter(FIELDS_FILTER)
+    private interface FieldsFilterMixin {
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.todoapp.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// アプリ内キャッシュ（Caffeine）。件数とTTLで古いものから捨てる
+// 書き込みのたびに消すことはしない。キーにデータバージョン（TodoDataVersion）を含めるので、
+// このインスタンスの書き込みでも別のインスタンスの書き込み（NOTIFY）でも、古いキーは読まれなくなり、件数・TTL で押し出される
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String TODO_BY_ID = "todoById";
+    public static final String TODO_PAGES = "todoPages";
+    public static final String TODO_LIST_FRAGMENTS = "todoListFragments"; // 描画済みの一覧HTML
+
+    @Bean
+    public CacheManager cacheManager(@Value("${todo.cache.by-id.spec:maximumSize=10000,expireAfterWrite=5m}") String byIdSpec,
+                                     @Value("${todo.cache.pages.spec:maximumSize=200,expireAfterWrite=30s}") String pagesSpec,
+                                     @Value("${todo.cache.fragments.spec:maximumSize=100,expireAfterWrite=10m}") String fragmentsSpec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(TODO_BY_ID, Caffeine.from(byIdSpec).recordStats().build());
+        cacheManager.registerCustomCache(TODO_PAGES, Caffeine.from(pagesSpec).recordStats().build());
+        cacheManager.registerCustomCache(TODO_LIST_FRAGMENTS, Caffeine.from(fragmentsSpec).recordStats().build());
+        return cacheManager;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.todoapp.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+// JSON / CBOR / Smile のレスポンスは、書き終わるまで flush しない（Jackson のコンバーターは書き終わりに flush する）
+// 先に flush するとヘッダーが Content-Length なしで送られ、Tomcat は server.compression.min-response-size を見ずに圧縮してしまう
+// 書き終わったときに Tomcat のバッファに収まっていれば Content-Length が付き、小さいものは圧縮されない
+// 変更通知（text/event-stream）やエクスポート（NDJSON）は flush で少しずつ届けるので、これまでどおり flush する
+public class DeferredFlushFilter extends OncePerRequestFilter {
+
+    private static final List<MediaType> DEFERRED_TYPES = List.of(
+            MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, new MediaType("application", "x-jackson-smile"));
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        filterChain.doFilter(request, new DeferredFlushResponse(response));
+    }
+
+    private static final class DeferredFlushResponse extends HttpServletResponseWrapper {
+
+        private ServletOutputStream outputStream;
+
+        private DeferredFlushResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new DeferredFlushOutputStream(super.getOutputStream(), this);
+            }
+            return outputStream;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (!deferred()) {
+                super.flushBuffer();
+            }
+        }
+
+        private boolean deferred() {
+            String contentType = getContentType();
+            if (contentType == null) {
+                return false;
+            }
+            MediaType type = MediaType.parseMediaType(contentType);
+            return DEFERRED_TYPES.stream().anyMatch(t -> t.equalsTypeAndSubtype(type));
+        }
+    }
+
+    private static final class DeferredFlushOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private final DeferredFlushResponse response;
+
+        private DeferredFlushOutputStream(ServletOutputStream delegate, DeferredFlushResponse response) {
+            this.delegate = delegate;
+            this.response = response;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!response.deferred()) {
+                delegate.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.todoapp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// todo.datasource.replica.urls を指定したときだけ、読み取りをレプリカに振り分ける DataSource にする
+// 指定しなければ Spring Boot の既定（spring.datasource.* の1つだけ）のまま
+// spring.jpa.open-in-view=true とは一緒に使えない（リクエストの最初に取ったレプリカの接続で、後の書き込みまで行われてしまう）
+// read-your-writes は書き込んだクライアントごと（ReadYourWritesFilter の Cookie）。どのインスタンスで書いても守られる
+@Configuration
+@ConditionalOnProperty("todo.datasource.replica.urls")
+public class ReadReplicaConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReplicaConfig.class);
+
+    @Bean
+    public ReadWriteRoutingDataSource dataSource(
+            DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${todo.datasource.replica.urls}") String replicaUrls,
+            @Value("${todo.datasource.replica.username:${spring.datasource.username:}}") String replicaUsername,
+            @Value("${todo.datasource.replica.password:${spring.datasource.password:}}") String replicaPassword,
+            @Value("${todo.datasource.replica.maximum-pool-size:10}") int replicaPoolSize,
+            @Value("${todo.datasource.replica.connection-timeout-ms:1000}") long replicaConnectionTimeoutMs,
+            @Value("${todo.datasource.replica.retry-after-ms:30000}") long retryAfterMs,
+            @Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        if (openInView) {
+            throw new IllegalStateException(
+                    "todo.datasource.replica.urls requires spring.jpa.open-in-view=false (writes would reuse the replica connection)");
+        }
+
+        // プライマリは spring.datasource.* から作る
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("todo-primary");
+        primary.setMetricRegistry(meterRegistry);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : Arrays.stream(replicaUrls.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList()) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("todo-replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url);
+            replica.setUsername(replicaUsername);
+            replica.setPassword(replicaPassword);
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            // 止まっているレプリカを待ち続けず、すぐプライマリに回す。起動時に止まっていてもアプリは起動する
+            replica.setConnectionTimeout(replicaConnectionTimeoutMs);
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricRegistry(meterRegistry);
+            replicas.add(replica);
+        }
+        logger.info("Routing read-only transactions to {} replica(s)", replicas.size());
+        return new ReadWriteRoutingDataSource(primary, replicas, retryAfterMs, meterRegistry);
+    }
+
+    // 書き込んだクライアントの読み取りを、read-your-writes-ms の間プライマリに回す
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${todo.datasource.replica.read-your-writes-ms:1000}") long readYourWritesMs) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(readYourWritesMs));
+        registration.addUrlPatterns("/*");
+        return registration;
+    }
+}
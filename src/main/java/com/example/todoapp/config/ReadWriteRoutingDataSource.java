@@ -0,0 +1,141 @@
+package com.example.todoapp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 読み取り専用トランザクション（@Transactional(readOnly = true)）の接続をレプリカに、それ以外をプライマリに振り分ける
+// ・接続はSQLを実行するときまで取らない（LazyConnectionDataSourceProxy）。トランザクションの readOnly が決まってから振り分けるため
+// ・レプリカは順番に使い、接続できなかったものはしばらく外してプライマリに回す
+// ・書き込んだばかりのクライアントのリクエスト（ReadYourWritesFilter が決める）は、読み取りもプライマリに行く
+//   （レプリカの遅れで「書いたのに見えない」を避ける。他のクライアントの読み取りはレプリカのまま）
+// ・トランザクションの外の接続（起動時のスキーマ更新、JdbcTemplate など）はプライマリ
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    public ReadWriteRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                      long retryAfterMs, MeterRegistry meterRegistry) {
+        super(new Router(primary, replicas, retryAfterMs, meterRegistry));
+    }
+
+    @Override
+    public void close() {
+        ((Router) obtainTargetDataSource()).close();
+    }
+
+    private static final class Router extends AbstractDataSource {
+
+        private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+        private final HikariDataSource primary;
+        private final List<Replica> replicas;
+        private final long retryAfterMs;
+        private final AtomicInteger next = new AtomicInteger();
+        private final Counter primaryConnections;
+        private final Counter replicaConnections;
+        private final Counter fallbackConnections;
+
+        private Router(HikariDataSource primary, List<HikariDataSource> replicas,
+                       long retryAfterMs, MeterRegistry meterRegistry) {
+            this.primary = primary;
+            this.replicas = replicas.stream().map(Replica::new).toList();
+            this.retryAfterMs = retryAfterMs;
+            this.primaryConnections = connectionCounter(meterRegistry, "primary");
+            this.replicaConnections = connectionCounter(meterRegistry, "replica");
+            this.fallbackConnections = connectionCounter(meterRegistry, "fallback");
+        }
+
+        private static Counter connectionCounter(MeterRegistry meterRegistry, String target) {
+            return Counter.builder("todo.datasource.connections")
+                    .description("振り分けた接続の数（fallback はレプリカに接続できずプライマリに回したもの）")
+                    .tag("target", target)
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (!readOnlyTransaction() || ReadYourWritesFilter.readFromPrimary()) {
+                return primaryConnection();
+            }
+            for (int attempt = 0; attempt < replicas.size(); attempt++) {
+                Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+                if (!replica.available()) {
+                    continue;
+                }
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    replicaConnections.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    replica.markDown(retryAfterMs);
+                    logger.warn("Replica {} is unavailable, using the primary for the next {}ms: {}",
+                            replica.dataSource.getPoolName(), retryAfterMs, e.toString());
+                }
+            }
+            fallbackConnections.increment();
+            return primary.getConnection();
+        }
+
+        // 接続ごとに認証情報を指定するときは、振り分けずにプライマリにそのまま渡す
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            Connection connection = primary.getConnection(username, password);
+            primaryConnections.increment();
+            return connection;
+        }
+
+        private Connection primaryConnection() throws SQLException {
+            Connection connection = primary.getConnection();
+            primaryConnections.increment();
+            // 書き込みトランザクションなら、コミットしたことをリクエストに記録する（そのクライアントの読み取りをプライマリに回す）
+            if (TransactionSynchronizationManager.isActualTransactionActive()
+                    && TransactionSynchronizationManager.isSynchronizationActive()
+                    && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        ReadYourWritesFilter.writeCommitted();
+                    }
+                });
+            }
+            return connection;
+        }
+
+        private static boolean readOnlyTransaction() {
+            return TransactionSynchronizationManager.isActualTransactionActive()
+                    && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        }
+
+        private void close() {
+            replicas.forEach(replica -> replica.dataSource.close());
+            primary.close();
+        }
+    }
+
+    private static final class Replica {
+        private final HikariDataSource dataSource;
+        private volatile long downUntil; // System.nanoTime()。0 なら使える
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private boolean available() {
+            return downUntil == 0 || System.nanoTime() - downUntil >= 0;
+        }
+
+        private void markDown(long retryAfterMs) {
+            downUntil = System.nanoTime() + retryAfterMs * 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.todoapp.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// 書き込んだクライアント（ブラウザ）だけ、read-your-writes-ms の間は読み取りもプライマリで行う（ReadWriteRoutingDataSource が見る）
+// ・書き込みがコミットされたら、その時刻を Cookie（todo-last-write）で返す。同じリクエストの後の読み取りもプライマリ
+// ・Cookie の時刻から read-your-writes-ms 以内のリクエストは、読み取りもプライマリに回す
+//   どのインスタンスに来ても同じように扱えるので、別のインスタンスで書いた直後でも自分の書き込みが見える
+// ・他のクライアントの読み取りはレプリカのまま（誰かが書くたびに全員をプライマリに回さない）
+// ・リクエストを処理しているスレッドでの書き込み・読み取りだけが対象（バックグラウンド処理は自分でプライマリを選ぶ）
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "todo-last-write";
+
+    private static final ThreadLocal<RequestState> current = new ThreadLocal<>();
+
+    private final long windowMs;
+
+    public ReadYourWritesFilter(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestState state = new RequestState(response, windowMs, wroteRecently(request, System.currentTimeMillis()));
+        current.set(state);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            current.remove();
+        }
+    }
+
+    // このスレッドで処理しているリクエストの読み取りをプライマリで行うか
+    static boolean readFromPrimary() {
+        RequestState state = current.get();
+        return state != null && state.readFromPrimary;
+    }
+
+    // このスレッドの書き込みトランザクションがコミットされた（リクエストの外なら何もしない）
+    static void writeCommitted() {
+        RequestState state = current.get();
+        if (state == null) {
+            return;
+        }
+        state.readFromPrimary = true;
+        if (!state.response.isCommitted()) {
+            ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, Long.toString(System.currentTimeMillis()))
+                    .path("/")
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .maxAge(Duration.ofMillis(state.windowMs).plusSeconds(1)) // Max-Age は秒単位なので切り上げておく
+                    .build();
+            state.response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        }
+    }
+
+    // Cookie の時刻が read-your-writes-ms 以内か（先の時刻は、時計のずれの分だけ認める）
+    boolean wroteRecently(HttpServletRequest request, long now) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    long wroteAt = Long.parseLong(cookie.getValue());
+                    return now - wroteAt < windowMs && wroteAt - now < windowMs;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static final class RequestState {
+        private final HttpServletResponse response;
+        private final long windowMs;
+        private boolean readFromPrimary;
+
+        private RequestState(HttpServletResponse response, long windowMs, boolean readFromPrimary) {
+            this.response = response;
+            this.windowMs = windowMs;
+            this.readFromPrimary = readFromPrimary;
+        }
+    }
+}
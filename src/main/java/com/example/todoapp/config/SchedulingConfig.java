@@ -0,0 +1,34 @@
+package com.example.todoapp.config;
+
+import com.example.todoapp.service.TodoChangeListener;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.Arrays;
+
+// @Scheduled のバックグラウンド処理を有効にする
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    // spring.main.lazy-initialization=true（fast-startup プロファイル）でも、@Scheduled を持つBeanは起動時に作る
+    // 遅延させると誰もそのBeanを使わない限り作られず、アウトボックスのリレーやアーカイブが動かないため
+    @Bean
+    static LazyInitializationExcludeFilter scheduledBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> Arrays.stream(ReflectionUtils.getUniqueDeclaredMethods(beanType))
+                .anyMatch(method -> AnnotatedElementUtils.hasAnnotation(method, Scheduled.class));
+    }
+
+    // 起動時（@PostConstruct）に自分でバックグラウンド処理を始めるBeanも、lazy-initialization では起動時に作る
+    // TodoChangeListener は誰からも使われないので、遅延させると LISTEN が始まらず、データバージョンが使えない（キャッシュ・ETag なし）まま、
+    // 変更通知（SSE）も入力候補の更新も届かなくなる
+    @Bean
+    static LazyInitializationExcludeFilter backgroundListenerExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(TodoChangeListener.class);
+    }
+}
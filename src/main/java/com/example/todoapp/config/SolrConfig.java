@@ -1,13 +1,15 @@
 package com.example.todoapp.config;
 
 import org.apache.solr.client.solrj.SolrClient;
-import org.apache.solr.client.solrj.impl.HttpSolrClient;
+import org.apache.solr.client.solrj.impl.Http2SolrClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class SolrConfig {
 
@@ -17,19 +19,35 @@ public class SolrConfig {
     private String solrHost; // application.properties から "http://localhost:8983/solr" を受け取る想定
     private static final String COLLECTION_NAME = "todo_items"; // コア名
 
-    @Bean
+    @Value("${solr.client.http2:true}")
+    private boolean http2; // false にすると HTTP/1.1 で接続する
+    @Value("${solr.client.max-connections-per-host:64}")
+    private int maxConnectionsPerHost; // HTTP/1.1 のときのコネクションプールの上限（HTTP/2 は1本を多重化）
+    @Value("${solr.client.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+    @Value("${solr.client.idle-timeout-ms:10000}")
+    private long idleTimeoutMs; // ソケットで応答を待つ時間
+    @Value("${solr.client.request-timeout-ms:15000}")
+    private long requestTimeoutMs; // 1リクエスト全体の上限
+
+    @Bean(destroyMethod = "close")
     public SolrClient solrClient() {
         String baseSolrUrl = solrHost;
         if (solrHost.endsWith("/")) {
             baseSolrUrl = solrHost.substring(0, solrHost.length() - 1);
         }
 
-        // HttpSolrClient を構築する際に、コア名まで含めた完全なURLをBuilderに渡す
-        String fullSolrCoreUrl = baseSolrUrl + "/" + COLLECTION_NAME;
-
-        logger.info("SolrClient will be built with full Solr Core URL: {}", fullSolrCoreUrl);
-
-        // Builder を使って構築し直す (protected コンストラクタ回避)
-        return new HttpSolrClient.Builder(fullSolrCoreUrl).build();
+        logger.info("SolrClient will be built for {} (core {}, http2={}, maxConnectionsPerHost={})",
+                baseSolrUrl, COLLECTION_NAME, http2, maxConnectionsPerHost);
+
+        // Jetty ベースの Http2SolrClient。HTTP/2 なら1本の接続で複数リクエストを多重化でき、非同期APIも使える
+        return new Http2SolrClient.Builder(baseSolrUrl)
+                .withDefaultCollection(COLLECTION_NAME)
+                .useHttp1_1(!http2)
+                .withMaxConnectionsPerHost(maxConnectionsPerHost)
+                .withConnectionTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .withIdleTimeout(idleTimeoutMs, TimeUnit.MILLISECONDS)
+                .withRequestTimeout(requestTimeoutMs, TimeUnit.MILLISECONDS)
+                .build();
     }
 }
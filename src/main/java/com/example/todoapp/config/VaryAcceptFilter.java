@@ -0,0 +1,23 @@
+package com.example.todoapp.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// API のレスポンスに Vary: Accept を付ける（JSON / CBOR / Smile が同じURLで返る）
+// 本文を書く前に付けるので、304 Not Modified やエラーのレスポンスにも付く
+// （共有キャッシュが 304 で別の形式のキャッシュを使い回さないように）
+public class VaryAcceptFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        filterChain.doFilter(request, response);
+    }
+}
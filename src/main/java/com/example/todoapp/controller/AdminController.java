@@ -0,0 +1,55 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.model.InvalidRequestException; // 不正なリクエスト（400）
+import com.example.todoapp.model.ReindexStatus; // 再インデックスの状態
+import com.example.todoapp.service.SolrReindexService; // 再インデックス処理
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+// 管理用のエンドポイント
+@Controller
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final SolrReindexService solrReindexService;
+
+    public AdminController(SolrReindexService solrReindexService) {
+        this.solrReindexService = solrReindexService;
+    }
+
+    // Solrの再インデックスを開始（managed-schema.xml を変えたときなど）
+    // 例: POST /admin/reindex?parallelism=8&chunkSize=2000&clean=true
+    //     POST /admin/reindex?resume=true （中断した位置から再開。clean は中断したジョブのまま）
+    //     clean でなかったジョブを resume=true&clean=true で再開しようとしたら 400
+    @PostMapping("/reindex")
+    @ResponseBody
+    public ResponseEntity<ReindexStatus> startReindex(
+            @RequestParam(required = false) Integer parallelism,
+            @RequestParam(required = false) Integer chunkSize,
+            @RequestParam(defaultValue = "false") boolean resume,
+            @RequestParam(defaultValue = "false") boolean clean) {
+        try {
+            return new ResponseEntity<>(solrReindexService.start(parallelism, chunkSize, resume, clean), HttpStatus.ACCEPTED);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(solrReindexService.status(), HttpStatus.CONFLICT);
+        } catch (InvalidRequestException e) {
+            return new ResponseEntity<>(solrReindexService.status(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // 進捗（処理件数・スループット・チェックポイント）
+    @GetMapping("/reindex")
+    @ResponseBody
+    public ReindexStatus reindexStatus() {
+        return solrReindexService.status();
+    }
+
+    // 中断（resume=true で続きから再開できる）
+    @PostMapping("/reindex/stop")
+    @ResponseBody
+    public ReindexStatus stopReindex() {
+        return solrReindexService.stop();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.config.ApiFormatConfig;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// fields=（カンマ区切りのプロパティ名）を指定したときだけ、ToDoのそのプロパティだけを返す（JSON / CBOR / Smile 共通）
+// 例: /api/todos?fields=id,title,completed。知らない名前は無視する。一覧・検索結果のような入れ物の形はそのまま
+// Vary: Accept は VaryAcceptFilter が付ける（fields はURLに入るのでキャッシュのキーが分かれる）
+@ControllerAdvice
+public class FieldsResponseBodyAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    private static final String FIELDS_PARAM = "fields";
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+            return;
+        }
+        String fields = servletRequest.getServletRequest().getParameter(FIELDS_PARAM);
+        if (fields == null || fields.isBlank()) {
+            return;
+        }
+        Set<String> names = Arrays.stream(fields.split(","))
+                .map(String::strip)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toSet());
+        bodyContainer.setFilters(ApiFormatConfig.fieldsFilter(names));
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.model.BulkTodoOperation; // 一括APIの1操作
+import com.example.todoapp.model.BulkTodoResult; // 一括APIの1操作ごとの結果
+import com.example.todoapp.service.TodoBulkService; // 一括処理
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.List;
+
+@Controller
+public class TodoBulkController {
+
+    private final TodoBulkService todoBulkService;
+    private final int maxOperations; // 1リクエストで受け付ける操作数の上限
+
+    public TodoBulkController(TodoBulkService todoBulkService,
+                              @Value("${todo.bulk.max-operations:1000}") int maxOperations) {
+        this.todoBulkService = todoBulkService;
+        this.maxOperations = maxOperations;
+    }
+
+    // 一括で作成・更新・削除する（結果は操作ごとに返す）
+    // 例: [{"op":"create","title":"A"},{"op":"update","id":1,"completed":true},{"op":"delete","id":2}]
+    @PostMapping("/api/todos/bulk")
+    @ResponseBody
+    public ResponseEntity<List<BulkTodoResult>> bulk(@RequestBody List<BulkTodoOperation> operations) {
+        if (operations.size() > maxOperations) {
+            return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+        return new ResponseEntity<>(todoBulkService.apply(operations), HttpStatus.OK);
+    }
+}
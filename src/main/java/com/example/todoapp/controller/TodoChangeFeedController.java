@@ -0,0 +1,31 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.service.TodoChangeFeed; // 変更通知の配信
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Controller
+public class TodoChangeFeedController {
+
+    private final TodoChangeFeed changeFeed;
+
+    public TodoChangeFeedController(TodoChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    // ToDoの変更をServer-Sent Eventsで受け取る（event: ready / todo / reset）
+    // 最初に ready で今のIDが届く。ブラウザの EventSource は再接続時に Last-Event-ID ヘッダーを付けるので、その続きから届く
+    // 最初の接続で続きから受け取りたいときは ?lastEventId= で指定する
+    @GetMapping(value = "/api/todos/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter changes(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(required = false) String lastEventId) {
+        return changeFeed.subscribe(lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+    }
+}
@@ -2,41 +2,99 @@ package com.example.todoapp.controller;
 
 // ... 既存のimport文 ...
 import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.CursorPage; // カーソル方式のページ
+import com.example.todoapp.model.InvalidRequestException; // 不正なリクエスト（400）
+import com.example.todoapp.model.RenderedTodoPage; // 描画済みの一覧
 import com.example.todoapp.model.SolrTodoItem; // Solr用のToDoアイテムの型を使う
-import com.example.todoapp.repository.TodoRepository;
+import com.example.todoapp.model.TodoListItem; // 一覧表示用の読み取り専用のToDo
+import com.example.todoapp.model.TodoPatch; // 部分更新の内容
+import com.example.todoapp.model.TodoStatusCounts; // 完了状態ごとの件数
+import com.example.todoapp.model.TodoSearchPage; // キーワード検索の1ページ
+import com.example.todoapp.model.TodoSearchRequest; // 条件付き検索の条件
+import com.example.todoapp.model.TodoSearchResult; // 条件付き検索の結果
 import com.example.todoapp.service.SolrTodoService; // Solrとやり取りするための変数
+import com.example.todoapp.service.TodoDataVersion; // データバージョン（ETag用）
+import com.example.todoapp.service.TodoListRenderer; // 一覧のサーバー側描画
+import com.example.todoapp.service.TodoSearchService; // キーワード検索
+import com.example.todoapp.service.TodoService; // ToDoの登録・更新・削除
+import com.example.todoapp.service.TodoViewService; // 絞り込みビュー
+import org.springframework.dao.OptimisticLockingFailureException; // 更新の競合（409）
+import org.springframework.http.CacheControl; // Cache-Control ヘッダー
+import org.springframework.http.HttpHeaders; // If-Match ヘッダー
 import org.springframework.http.HttpStatus; // HTTPステータスコードを返すため
+import org.springframework.http.InvalidMediaTypeException; // 壊れた Accept
+import org.springframework.http.MediaType; // ETag に付ける形式の判定
 import org.springframework.http.ResponseEntity; // HTTPレスポンス全体を操作するため
 
 import java.io.IOException; // I/Oエラーを扱うため
+import java.nio.charset.StandardCharsets; // fields を ETag に入れるため
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List; // リストを扱うため
 import java.util.Optional; // nullチェックのため
+import java.util.concurrent.CompletableFuture; // 非同期レスポンスのため
 import java.util.Date; // 日時を扱うため
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 import org.apache.solr.client.solrj.SolrServerException; // Solrサーバーエラーを扱うため
+import org.postgresql.util.PSQLException; // PostgreSQL のエラー（SQLSTATE）を見るため
+import org.springframework.core.NestedExceptionUtils; // 例外の根本原因を取り出すため
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value; // 設定値を受け取るため
+import org.springframework.format.annotation.DateTimeFormat; // 日時パラメータの形式
 import org.springframework.stereotype.Controller; // HTML画面を返すコントローラー
 import org.springframework.ui.Model; // 画面にデータを渡すための変数
+import org.springframework.util.MimeTypeUtils; // Accept の並べ替え
 import org.springframework.web.bind.annotation.*; // URLやリクエストに使うクラス
+import org.springframework.web.context.request.WebRequest; // 条件付きGET（If-None-Match）のため
 
 
 @Controller
 @RequestMapping // Controllerレベルでパスを指定しないことで、メソッドレベルで柔軟にパスを設定
 public class TodoController {
 
-    private final TodoRepository todoRepository;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    // 検索が PostgreSQL の簡易検索で返ったときの理由（circuit-open / timeout / error / continued）
+    private static final String SEARCH_DEGRADED_HEADER = "X-Search-Degraded";
+    private static final String QUERY_CANCELED = "57014"; // PostgreSQL の statement_timeout などで打ち切られた
+    private static final String FIELDS_PARAM = "fields"; // 返すプロパティの指定（FieldsResponseBodyAdvice）
+    private static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+    private final TodoService todoService; // 書き込みはサービス経由（Solrへはアウトボックスで反映）
     private final SolrTodoService solrTodoService;
+    private final TodoViewService todoViewService; // 未完了/完了・日時範囲の一覧と件数
+    private final TodoSearchService todoSearchService; // キーワード検索（Solr、使えないときは PostgreSQL）
+    private final TodoListRenderer todoListRenderer; // トップページの一覧HTML
+    private final TodoDataVersion dataVersion; // 一覧のETag用
+    private final int defaultPageSize; // 一覧の1ページあたりの件数
+    private final int maxPageSize; // limit パラメータの上限
 
     @Autowired
-    public TodoController(TodoRepository todoRepository, SolrTodoService solrTodoService) {
-        this.todoRepository = todoRepository;
+    public TodoController(TodoService todoService, SolrTodoService solrTodoService, TodoViewService todoViewService,
+                          TodoSearchService todoSearchService, TodoListRenderer todoListRenderer, TodoDataVersion dataVersion,
+                          @Value("${todo.page.default-size:50}") int defaultPageSize,
+                          @Value("${todo.page.max-size:500}") int maxPageSize) {
+        this.todoService = todoService;
         this.solrTodoService = solrTodoService;
+        this.todoViewService = todoViewService;
+        this.todoSearchService = todoSearchService;
+        this.todoListRenderer = todoListRenderer;
+        this.dataVersion = dataVersion;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
-    // ① 初期表示：ToDoの一覧ページを表示 (データベースから取得)
+    // ① 初期表示：ToDoの一覧ページを表示 (1ページ分をサーバー側で描画済みのHTMLで埋め込む)
+    // 一覧部分はデータバージョンごとにキャッシュしたHTMLを使うので、件数が増えても最初のページの描画時間は変わらない
     @GetMapping("/")
-    public String index(Model model) {
-        List<Todo> todos = todoRepository.findAll();
-        model.addAttribute("todos", todos);
+    public String index(@RequestParam(required = false) String cursor, Model model, WebRequest webRequest) {
+        if (notModified(webRequest, dataVersion.etag("index", cursor))) {
+            return null; // 304 Not Modified
+        }
+        RenderedTodoPage page = todoListRenderer.render(cursor, defaultPageSize);
+        model.addAttribute("listHtml", page.html());
+        model.addAttribute("nextCursor", page.nextCursor());
         model.addAttribute("todo", new Todo());
         return "index";
     }
@@ -44,29 +102,21 @@ public class TodoController {
     // ② 通常のToDo追加（画面リロードあり）
     @PostMapping("/add")
     public String addTodo(@ModelAttribute Todo todo) {
-        if (todo.getCreatedAt() == null) {
-            todo.setCreatedAt(new Date());
-        }
-        todo.setUpdatedAt(new Date());
-        todoRepository.save(todo);
+        todoService.createTodo(todo);
         return "redirect:/";
     }
 
     // ③ チェックの切り替え（画面リロードあり）
     @PostMapping("/toggle/{id}")
     public String toggleDone(@PathVariable Long id) {
-        todoRepository.findById(id).ifPresent(todo -> {
-            todo.setCompleted(!todo.isCompleted());
-            todo.setUpdatedAt(new Date());
-            todoRepository.save(todo);
-        });
+        todoService.toggleTodo(id);
         return "redirect:/";
     }
 
     // ④ ToDoの削除（画面リロードあり）
     @PostMapping("/delete/{id}")
     public String deleteTodo(@PathVariable Long id) {
-        todoRepository.deleteById(id);
+        todoService.deleteTodo(id);
         return "redirect:/";
     }
 
@@ -74,74 +124,157 @@ public class TodoController {
     // ↓↓↓ ここからは AJAX を使うための処理
     // ★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★
 
-    // ⑤ AJAX用：ToDo一覧を返す（JSON形式） - データベースから全件取得
+    // ⑤ AJAX用：ToDo一覧を返す（JSON形式） - データベースから1ページ分取得
+    // 次のページのカーソルは X-Next-Cursor ヘッダーで返す（最後のページでは付かない）
+    // データが変わっていなければ If-None-Match に 304 を返し、DBにもキャッシュにも触らない
+    // includeArchived=true のときはアーカイブ済みも含めて返す（各項目に archived が付く）
     @GetMapping("/api/todos")
     @ResponseBody
-    public List<Todo> getTodos() {
-        return todoRepository.findAll();
+    public ResponseEntity<? extends List<?>> getTodos(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean includeArchived,
+            WebRequest webRequest) {
+        int size = pageSize(limit);
+        String etag = includeArchived ? listEtag(webRequest, "withArchived", cursor, size) : listEtag(webRequest, cursor, size);
+        if (notModified(webRequest, etag)) {
+            return null; // 304 Not Modified
+        }
+        if (includeArchived) {
+            return withNextCursor(todoViewService.findAllIncludingArchived(cursor, size), etag);
+        }
+        CursorPage<Todo> page = todoService.findTodoPage(cursor, size);
+        return withNextCursor(page, etag);
     }
 
-    // ⑥ AJAX用：ToDoを新規追加（JSONを受け取って保存）
-    @PostMapping("/api/todos")
+    // AJAX用：未完了 / 完了のToDo一覧（登録順、X-Next-Cursor で続きを読む）
+    @GetMapping("/api/todos/open")
     @ResponseBody
-    public ResponseEntity<Todo> createTodo(@RequestBody Todo todo) {
-        try {
-            if (todo.getCreatedAt() == null) {
-                todo.setCreatedAt(new Date());
-            }
-            todo.setUpdatedAt(new Date());
-            Todo savedTodo = todoRepository.save(todo);
+    public ResponseEntity<List<TodoListItem>> getOpenTodos(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        return getTodosByStatus(false, cursor, limit, webRequest);
+    }
+
+    @GetMapping("/api/todos/completed")
+    @ResponseBody
+    public ResponseEntity<List<TodoListItem>> getCompletedTodos(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        return getTodosByStatus(true, cursor, limit, webRequest);
+    }
 
-            solrTodoService.indexTodoItem(convertToSolrTodoItem(savedTodo));
+    // AJAX用：登録日時 / 更新日時が [from, to) のToDo（それぞれの日時の順）
+    // 例: /api/todos/updated?from=2025-06-01T00:00:00Z&to=2025-07-01T00:00:00Z
+    @GetMapping("/api/todos/created")
+    @ResponseBody
+    public ResponseEntity<List<TodoListItem>> getTodosCreatedBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        int size = pageSize(limit);
+        String etag = listEtag(webRequest, "created", from.getTime(), to.getTime(), cursor, size);
+        if (notModified(webRequest, etag)) {
+            return null; // 304 Not Modified
+        }
+        return withNextCursor(todoViewService.findCreatedBetween(from, to, cursor, size), etag);
+    }
 
-            return new ResponseEntity<>(savedTodo, HttpStatus.CREATED);
-        } catch (IOException | SolrServerException e) {
-            e.printStackTrace();
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    @GetMapping("/api/todos/updated")
+    @ResponseBody
+    public ResponseEntity<List<TodoListItem>> getTodosUpdatedBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        int size = pageSize(limit);
+        String etag = listEtag(webRequest, "updated", from.getTime(), to.getTime(), cursor, size);
+        if (notModified(webRequest, etag)) {
+            return null; // 304 Not Modified
+        }
+        return withNextCursor(todoViewService.findUpdatedBetween(from, to, cursor, size), etag);
+    }
+
+    // AJAX用：未完了・完了・全体の件数
+    @GetMapping("/api/todos/counts")
+    @ResponseBody
+    public ResponseEntity<TodoStatusCounts> getTodoCounts(WebRequest webRequest) {
+        String etag = listEtag(webRequest, "counts");
+        if (notModified(webRequest, etag)) {
+            return null; // 304 Not Modified
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (etag != null) {
+            response.eTag(etag).cacheControl(CacheControl.noCache());
         }
+        return response.body(todoViewService.countByStatus());
+    }
+
+    // AJAX用：ToDoを1件返す
+    // ETag は行のバージョンと表現（"3"、CBOR なら "3-cbor" など）。そのまま PATCH の If-Match に渡せる
+    @GetMapping("/api/todos/{id}")
+    @ResponseBody
+    public ResponseEntity<Todo> getTodo(@PathVariable Long id, WebRequest webRequest) {
+        Optional<Todo> found = todoService.findTodoById(id);
+        if (found.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        String etag = versionEtag(found.get(), webRequest);
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304 Not Modified
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(found.get());
+    }
+
+    // ⑥ AJAX用：ToDoを新規追加（JSONを受け取って保存）
+    @PostMapping("/api/todos")
+    @ResponseBody
+    public ResponseEntity<Todo> createTodo(@RequestBody Todo todo) {
+        Todo savedTodo = todoService.createTodo(todo);
+        return new ResponseEntity<>(savedTodo, HttpStatus.CREATED);
     }
 
     // ⑦ AJAX用：ToDoの完了/未完了を切り替える
     @PutMapping("/api/todos/{id}")
     @ResponseBody
     public ResponseEntity<Todo> toggleTodo(@PathVariable Long id) {
-        try {
-            Optional<Todo> optionalTodo = todoRepository.findById(id);
-            if (optionalTodo.isEmpty()) {
-                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-            }
-
-            Todo todo = optionalTodo.get();
-            todo.setCompleted(!todo.isCompleted());
-            todo.setUpdatedAt(new Date());
-            Todo updatedTodo = todoRepository.save(todo);
-
-            solrTodoService.indexTodoItem(convertToSolrTodoItem(updatedTodo));
+        Optional<Todo> updatedTodo = todoService.toggleTodo(id);
+        return updatedTodo
+                .map(todo -> new ResponseEntity<>(todo, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
 
-            return new ResponseEntity<>(updatedTodo, HttpStatus.OK);
-        } catch (IOException | SolrServerException e) {
-            e.printStackTrace();
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    // AJAX用：ToDoの一部の項目だけを更新する（JSONで指定した項目だけ。例: {"title": "新しいタイトル"}）
+    // 読んだときの version を本文か If-Match（GET で受け取った ETag）で渡すと、その後に他の更新があった場合は 409 を返す
+    @PatchMapping("/api/todos/{id}")
+    @ResponseBody
+    public ResponseEntity<Todo> patchTodo(@PathVariable Long id, @RequestBody TodoPatch patch,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                          WebRequest webRequest) {
+        if (patch.version() == null && ifMatch != null) {
+            patch = patch.withVersion(parseVersion(ifMatch));
         }
+        if (!patch.hasChanges()) {
+            throw new InvalidRequestException("No fields to update");
+        }
+        return todoService.patchTodo(id, patch)
+                .map(todo -> ResponseEntity.ok().eTag(versionEtag(todo, webRequest)).body(todo))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     // ⑧ AJAX用：ToDoを削除する
     @DeleteMapping("/api/todos/{id}")
     @ResponseBody
     public ResponseEntity<Void> deleteTodoAjax(@PathVariable Long id) {
-        try {
-            if (!todoRepository.existsById(id)) {
-                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-            }
-            todoRepository.deleteById(id);
-
-            solrTodoService.deleteTodoItem(String.valueOf(id));
-
-            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-        } catch (IOException | SolrServerException e) {
-            e.printStackTrace();
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        if (!todoService.deleteTodo(id)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
     // ★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★
@@ -149,39 +282,208 @@ public class TodoController {
     // ★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★
 
     // ⑨ AJAX用：SolrでToDoを検索する (title_s フィールドを使用)
+    // カーソル方式は非同期で検索し、Solrの応答を待つ間はリクエストスレッドを返す
+    // Solrが遅い・使えないときは PostgreSQL の簡易検索で返し、X-Search-Degraded ヘッダーに理由を付ける（TodoSearchService）
     @GetMapping("/api/todos/search") // ★パスを変更せず、検索クエリパラメータで制御
     @ResponseBody
-    public ResponseEntity<List<SolrTodoItem>> searchTodos(
+    public CompletableFuture<ResponseEntity<List<SolrTodoItem>>> searchTodos(
             @RequestParam String q, // 検索クエリ（例: q=キーワード）
-            @RequestParam(defaultValue = "0") int start,
-            @RequestParam(defaultValue = "10") int rows) {
+            @RequestParam(required = false) String cursor, // 前回の X-Next-Cursor（最初は省略）
+            @RequestParam(defaultValue = "0") int start, // 互換用：start を指定したときだけ従来のオフセット方式
+            @RequestParam(defaultValue = "10") int rows,
+            @RequestParam(defaultValue = "false") boolean includeArchived) { // true: アーカイブ済みも検索する
+        CompletableFuture<TodoSearchPage> page = start > 0 && cursor == null
+                ? todoSearchService.searchOffset(q, start, rows, includeArchived)
+                : todoSearchService.searchPage(q, cursor, rows, includeArchived);
+        return page
+                .thenApply(this::withSearchHeaders)
+                .exceptionally(e -> {
+                    // 簡易検索が statement_timeout で打ち切られた（Solrも使えない）ときは、少し待って再試行してもらう
+                    if (NestedExceptionUtils.getMostSpecificCause(e) instanceof PSQLException sqlException
+                            && QUERY_CANCELED.equals(sqlException.getSQLState())) {
+                        return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+                    }
+                    e.printStackTrace();
+                    return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+                });
+    }
+
+    // ⑩ AJAX用：条件付き検索（完了状態・日付範囲で絞り込み、ファセット件数とソートつき）
+    // 例: /api/todos/query?q=買い物&completed=false&createdFrom=2025-06-01T00:00:00Z&sort=updated_desc
+    // view=summary を付けると items は id / title / completed だけの軽い形になる
+    @GetMapping("/api/todos/query")
+    @ResponseBody
+    public ResponseEntity<TodoSearchResult<?>> queryTodos(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Boolean completed,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date createdTo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date updatedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date updatedTo,
+            @RequestParam(defaultValue = "relevance") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int rows,
+            @RequestParam(defaultValue = "full") String view, // summary: id / title / completed だけを返す
+            @RequestParam(defaultValue = "false") boolean includeArchived) { // true: アーカイブ済みも検索する
         try {
-            // qパラメータを使って title_s フィールドを検索
-            List<SolrTodoItem> results = solrTodoService.searchTodoItems("title_strnew:" + q , start, rows);
-            return new ResponseEntity<>(results, HttpStatus.OK);
+            TodoSearchRequest request = new TodoSearchRequest(q, completed, createdFrom, createdTo,
+                    updatedFrom, updatedTo, sort, cursor, Math.min(rows, maxPageSize), includeArchived);
+            TodoSearchResult<?> result = switch (view) {
+                case "full" -> solrTodoService.searchTodoItems(request);
+                case "summary" -> solrTodoService.searchTodoSummaries(request);
+                default -> throw new InvalidRequestException("Unknown view: " + view);
+            };
+            return new ResponseEntity<>(result, HttpStatus.OK);
         } catch (IOException | SolrServerException e) {
-
             e.printStackTrace();
-
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    // 不正なカーソル・ソート指定などは 400 を返す（それ以外の IllegalArgumentException はサーバー側の不具合として 500 のまま）
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<Void> handleBadRequest(InvalidRequestException e) {
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    // 指定した version の後に他の更新があった（後勝ちで上書きしない）
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Void> handleConflict(OptimisticLockingFailureException e) {
+        return new ResponseEntity<>(HttpStatus.CONFLICT);
+    }
+
     // ★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★
-    // ↓↓↓ ヘルパーメソッド (エンティティとSolrモデルの変換) ↓↓↓
+    // ↓↓↓ ヘルパーメソッド ↓↓↓
     // ★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★★
 
-    private SolrTodoItem convertToSolrTodoItem(Todo todo) {
-        SolrTodoItem solrItem = new SolrTodoItem(
-                String.valueOf(todo.getId()),
-                todo.getTitle(),
-                todo.getDescription(),
-                todo.isCompleted(),
-                todo.getCreatedAt(),
-                todo.getUpdatedAt(),
-                todo.getTitle()
-        );
-        solrItem.setTitleExact(todo.getTitle()); // title_s 用の値を設定
-        return solrItem;
-    }
-}
\ No newline at end of file
+    // 1件の ETag（行のバージョンと表現。例: "3"、"3-cbor"、"3-fdGl0bGU"）
+    // 強い ETag なので、バイト列が違う表現（形式・fields）には違う値を付ける
+    private static String versionEtag(Todo todo, WebRequest webRequest) {
+        String representation = representation(webRequest);
+        return "\"" + todo.getVersion() + (representation.isEmpty() ? "" : "-" + representation) + "\"";
+    }
+
+    // 一覧の ETag（データバージョン・条件・表現）。データバージョンを使えない間は null
+    private String listEtag(WebRequest webRequest, Object... parts) {
+        if (!dataVersion.isTracking()) {
+            return null;
+        }
+        String representation = representation(webRequest);
+        if (representation.isEmpty()) {
+            return dataVersion.etag(parts);
+        }
+        Object[] withRepresentation = Arrays.copyOf(parts, parts.length + 1);
+        withRepresentation[parts.length] = representation;
+        return dataVersion.etag(withRepresentation);
+    }
+
+    // If-None-Match と合えば true（304）。データバージョンを使えない間は ETag が null なので、いつも作り直して返す
+    private static boolean notModified(WebRequest webRequest, String etag) {
+        return etag != null && webRequest.checkNotModified(etag);
+    }
+
+    // レスポンスの表現の違い：Accept で選ばれる形式（JSON 以外なら cbor / smile）と fields（f + 並べ替えた名前の Base64URL）
+    // JSON で fields なしなら空（これまでの ETag のまま）
+    private static String representation(WebRequest webRequest) {
+        List<String> parts = new ArrayList<>();
+        String format = negotiatedFormat(webRequest.getHeader(HttpHeaders.ACCEPT));
+        if (format != null) {
+            parts.add(format);
+        }
+        String fields = webRequest.getParameter(FIELDS_PARAM);
+        if (fields != null && !fields.isBlank()) {
+            // FieldsResponseBodyAdvice と同じく、空白を除いた名前の集合で決まる（順番・重複は関係ない）
+            String names = Arrays.stream(fields.split(","))
+                    .map(String::strip)
+                    .filter(name -> !name.isEmpty())
+                    .collect(Collectors.toCollection(TreeSet::new))
+                    .stream().collect(Collectors.joining(","));
+            if (!names.isEmpty()) {
+                parts.add("f" + Base64.getUrlEncoder().withoutPadding().encodeToString(names.getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        return String.join("-", parts);
+    }
+
+    // Accept から Spring MVC が選ぶ形式（コンバーターの順：JSON → CBOR → Smile）。JSON なら null
+    private static String negotiatedFormat(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return null;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType type : accepted) {
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return null;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return "cbor";
+            }
+            if (type.isCompatibleWith(SMILE)) {
+                return "smile";
+            }
+        }
+        return null;
+    }
+
+    // If-Match の値からバージョンを取り出す。受け付けるのは versionEtag の形（"3" / "3-cbor" など）だけ
+    // 表現が違っても同じ行のバージョンなので、JSON で読んだ ETag で CBOR の PATCH をしてもよい
+    private static Long parseVersion(String ifMatch) {
+        String value = ifMatch.strip();
+        if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+            throw new InvalidRequestException("Invalid If-Match: " + ifMatch);
+        }
+        String tag = value.substring(1, value.length() - 1);
+        int dash = tag.indexOf('-');
+        try {
+            return Long.valueOf(dash < 0 ? tag : tag.substring(0, dash));
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Invalid If-Match: " + ifMatch, e);
+        }
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    private ResponseEntity<List<TodoListItem>> getTodosByStatus(boolean completed, String cursor, Integer limit,
+                                                                WebRequest webRequest) {
+        int size = pageSize(limit);
+        String etag = listEtag(webRequest, completed ? "completed" : "open", cursor, size);
+        if (notModified(webRequest, etag)) {
+            return null; // 304 Not Modified
+        }
+        return withNextCursor(todoViewService.findByStatus(completed, cursor, size), etag);
+    }
+
+    private ResponseEntity<List<SolrTodoItem>> withSearchHeaders(TodoSearchPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        if (page.degraded() != null) {
+            response.header(SEARCH_DEGRADED_HEADER, page.degraded());
+        }
+        return response.body(page.items());
+    }
+
+    private <T> ResponseEntity<List<T>> withNextCursor(CursorPage<T> page, String etag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (etag != null) {
+            // ブラウザにも毎回 If-None-Match で確認させる
+            response.eTag(etag).cacheControl(CacheControl.noCache());
+        }
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+}
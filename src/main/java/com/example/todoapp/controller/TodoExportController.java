@@ -0,0 +1,51 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.service.TodoExportService; // エクスポート処理
+import org.apache.solr.client.solrj.SolrServerException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody; // レスポンスに直接書き込むため
+
+import java.io.IOException;
+
+@Controller
+public class TodoExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final TodoExportService todoExportService;
+
+    public TodoExportController(TodoExportService todoExportService) {
+        this.todoExportService = todoExportService;
+    }
+
+    // 全ToDoを NDJSON でダウンロード（source=db: PostgreSQL / source=solr: Solr）
+    @GetMapping("/api/todos/export")
+    @ResponseBody
+    public ResponseEntity<StreamingResponseBody> exportTodos(@RequestParam(defaultValue = "db") String source) {
+        boolean fromSolr = "solr".equalsIgnoreCase(source);
+        if (!fromSolr && !"db".equalsIgnoreCase(source)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> {
+            if (fromSolr) {
+                try {
+                    todoExportService.exportFromSolr(out);
+                } catch (SolrServerException e) {
+                    throw new IOException(e);
+                }
+            } else {
+                todoExportService.exportFromDatabase(out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header("Content-Disposition", "attachment; filename=\"todos-" + source.toLowerCase() + ".ndjson\"")
+                .body(body);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.service.TodoTitleSuggester; // タイトルの入力候補
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.List;
+
+@Controller
+public class TodoSuggestController {
+
+    private final TodoTitleSuggester suggester;
+    private final int maxLimit;
+
+    public TodoSuggestController(TodoTitleSuggester suggester,
+                                 @Value("${todo.suggest.max-limit:20}") int maxLimit) {
+        this.suggester = suggester;
+        this.maxLimit = maxLimit;
+    }
+
+    // 入力途中の q に続くタイトルの候補（入力のたびに呼ばれるので、DB・Solrには問い合わせない）
+    @GetMapping("/api/todos/suggest")
+    @ResponseBody
+    public List<String> suggest(@RequestParam(defaultValue = "") String q,
+                                @RequestParam(defaultValue = "10") int limit) {
+        return suggester.suggest(q, Math.min(limit, maxLimit));
+    }
+}
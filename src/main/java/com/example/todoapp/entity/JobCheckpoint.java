@@ -0,0 +1,31 @@
+package com.example.todoapp.entity;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+// バックグラウンドジョブの進捗（どこまで終わったか）を保存して、中断後に続きから再開する
+@Entity
+@Table(name = "job_checkpoint")
+public class JobCheckpoint {
+
+    @Id
+    @Column(length = 64)
+    private String name; // ジョブ名
+
+    private long position; // ジョブごとの位置（IDやタイムスタンプなど）
+    private Date updatedAt;
+
+    public JobCheckpoint() {
+    }
+
+    public JobCheckpoint(String name, long position) {
+        this.name = name;
+        this.position = position;
+        this.updatedAt = new Date();
+    }
+
+    public String getName() { return name; }
+    public long getPosition() { return position; }
+    public void setPosition(long position) { this.position = position; this.updatedAt = new Date(); }
+    public Date getUpdatedAt() { return updatedAt; }
+}
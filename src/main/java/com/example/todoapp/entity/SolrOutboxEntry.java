@@ -0,0 +1,50 @@
+package com.example.todoapp.entity;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+// Solrへの反映待ちを記録するアウトボックス（Todoと同じトランザクションで書き込む）
+@Entity
+@Table(name = "solr_outbox")
+public class SolrOutboxEntry {
+
+    public enum Operation { INDEX, DELETE, ARCHIVE } // ARCHIVE: todo_archive の内容をアーカイブ済みとして送る
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "solr_outbox_seq")
+    @SequenceGenerator(name = "solr_outbox_seq", sequenceName = "solr_outbox_seq", allocationSize = 50)
+    private Long id; // 登録順 = Solrへ送る順番
+
+    @Column(nullable = false)
+    private Long todoId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Operation operation;
+
+    private Date createdAt;
+    private int attempts; // 送信に失敗した回数
+    private Date nextAttemptAt; // 失敗したとき、次に送る時刻（それまではリレーが読まない）
+    private Date deadLetteredAt; // max-attempts 回失敗してあきらめた時刻（もう送らない）
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public SolrOutboxEntry() {
+    }
+
+    public SolrOutboxEntry(Long todoId, Operation operation) {
+        this.todoId = todoId;
+        this.operation = operation;
+        this.createdAt = new Date();
+    }
+
+    public Long getId() { return id; }
+    public Long getTodoId() { return todoId; }
+    public Operation getOperation() { return operation; }
+    public Date getCreatedAt() { return createdAt; }
+    public int getAttempts() { return attempts; }
+    public Date getNextAttemptAt() { return nextAttemptAt; }
+    public Date getDeadLetteredAt() { return deadLetteredAt; }
+    public String getLastError() { return lastError; }
+}
@@ -1,13 +1,24 @@
 package com.example.todoapp.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 import java.util.Date; // Date型を使用するために追加
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_todo_created_at_id", columnList = "createdAt, id"), // キーセットページング・登録日時の範囲
+        @Index(name = "idx_todo_completed_created_at_id", columnList = "completed, createdAt, id"), // 未完了/完了の一覧・件数
+        @Index(name = "idx_todo_updated_at_id", columnList = "updatedAt, id") // 更新日時の範囲
+})
+@DynamicUpdate // 更新するときは変わった列だけを書く
 public class Todo {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // IDENTITY だと Hibernate が INSERT をバッチにできないので、まとめて採番するシーケンスを使う
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "todo_seq")
+    @SequenceGenerator(name = "todo_seq", sequenceName = "todo_seq", allocationSize = 50)
     private Long id;
     private String title;
     private String description; // ToDoの詳細を格納
@@ -15,6 +26,14 @@ public class Todo {
     private Date createdAt; // ToDoが作成された日時を格納
     private Date updatedAt; // ToDoが最後に更新された日時を格納
 
+    // 楽観ロック用のバージョン。更新のたびに1つ増える（PATCH の If-Match で使う）
+    // 既存の行にも列を足せるよう、既定値 0 を付けておく。クライアントからは変えられない
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     public Todo() {
     }
 
@@ -37,4 +56,6 @@ public class Todo {
     public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
     public Date getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(Date updatedAt) { this.updatedAt = updatedAt; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
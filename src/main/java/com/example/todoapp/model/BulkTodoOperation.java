@@ -0,0 +1,6 @@
+package com.example.todoapp.model;
+
+// 一括APIの1操作分
+// op: "create" / "update" / "delete"。update は null でない項目だけを書き換える
+public record BulkTodoOperation(String op, Long id, String title, String description, Boolean completed) {
+}
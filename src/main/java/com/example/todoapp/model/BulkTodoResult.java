@@ -0,0 +1,13 @@
+package com.example.todoapp.model;
+
+// 一括APIの1操作ごとの結果（index はリクエスト配列内の位置、status はHTTPステータス相当）
+public record BulkTodoResult(int index, String op, Long id, int status, String error) {
+
+    public static BulkTodoResult ok(int index, String op, Long id, int status) {
+        return new BulkTodoResult(index, op, id, status, null);
+    }
+
+    public static BulkTodoResult error(int index, String op, Long id, int status, String error) {
+        return new BulkTodoResult(index, op, id, status, error);
+    }
+}
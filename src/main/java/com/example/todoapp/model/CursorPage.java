@@ -0,0 +1,7 @@
+package com.example.todoapp.model;
+
+import java.util.List;
+
+// カーソル方式のページ（nextCursor が null なら最後のページ）
+public record CursorPage<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,14 @@
+package com.example.todoapp.model;
+
+// クライアントが送った値が不正（壊れたカーソル・知らないソートなど）。コントローラーで 400 にする
+// サーバー側の不具合（ライブラリの IllegalArgumentException など）と区別するため、専用の例外にしている
+public class InvalidRequestException extends RuntimeException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
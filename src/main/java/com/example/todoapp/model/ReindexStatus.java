@@ -0,0 +1,19 @@
+package com.example.todoapp.model;
+
+import java.util.Date;
+
+// 再インデックスジョブの状態（/admin/reindex で返す）
+public record ReindexStatus(
+        String state, // IDLE / RUNNING / STOPPING / COMPLETED / STOPPED / FAILED
+        Date startedAt,
+        Date finishedAt,
+        int parallelism,
+        int chunkSize,
+        long fromId, // 今回の開始ID（再開時はチェックポイントの次）
+        long toId,
+        long checkpointId, // ここまでは全チャンク完了済み（再開位置）
+        long indexedDocuments,
+        long completedChunks,
+        double docsPerSecond,
+        String error) {
+}
@@ -0,0 +1,5 @@
+package com.example.todoapp.model;
+
+// サーバー側で描画した一覧1ページ分のHTML（li の並び）と次のページのカーソル
+public record RenderedTodoPage(String html, String nextCursor) {
+}
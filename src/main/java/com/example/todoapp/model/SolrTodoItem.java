@@ -28,6 +28,9 @@ public class SolrTodoItem {
     @Field("title_strnew") // (検索表示用)
     private String titlestrnew;
 
+    @Field("archived_b") // アーカイブ済み（todo_archive に移したもの）。通常の検索では除外する
+    private boolean archived;
+
 
     public SolrTodoItem(String id, String title, String description, boolean completed, Date createdAt, Date updatedAt, String titleExact) {
         this.id = id;
@@ -61,4 +64,7 @@ public class SolrTodoItem {
 
     public String getTitleExact() { return titlestrnew; }
     public void setTitleExact(String titleExact) { this.titlestrnew = titleExact; }
+
+    public boolean isArchived() { return archived; }
+    public void setArchived(boolean archived) { this.archived = archived; }
 }
\ No newline at end of file
@@ -0,0 +1,6 @@
+package com.example.todoapp.model;
+
+// 検索結果の軽い形（一覧でタイトルと完了状態だけ出すとき用）
+// Solrからも id / title / completed の3フィールドだけを受け取る
+public record SolrTodoSummary(String id, String title, boolean completed) {
+}
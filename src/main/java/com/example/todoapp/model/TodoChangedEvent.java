@@ -0,0 +1,26 @@
+package com.example.todoapp.model;
+
+import com.example.todoapp.entity.Todo;
+
+// ToDoが作成・更新・削除されたとき（TodoService）、アーカイブされたとき（TodoArchiver）に発行するイベント
+// todo は削除・アーカイブのときは null。アーカイブされたToDoは通常の一覧・検索から消えるので、受け取る側では削除と同じに扱ってよい
+public record TodoChangedEvent(Type type, Long id, Todo todo) {
+
+    public enum Type { CREATED, UPDATED, DELETED, ARCHIVED }
+
+    public static TodoChangedEvent created(Todo todo) {
+        return new TodoChangedEvent(Type.CREATED, todo.getId(), todo);
+    }
+
+    public static TodoChangedEvent updated(Todo todo) {
+        return new TodoChangedEvent(Type.UPDATED, todo.getId(), todo);
+    }
+
+    public static TodoChangedEvent deleted(Long id) {
+        return new TodoChangedEvent(Type.DELETED, id, null);
+    }
+
+    public static TodoChangedEvent archived(Long id) {
+        return new TodoChangedEvent(Type.ARCHIVED, id, null);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.todoapp.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+// 一覧のキーセットページング用カーソル (createdAt, id)
+// 更新日時順のビュー（TodoViewService）では createdAt に updatedAt を入れて使う
+// クライアントには中身を意識させないよう Base64 でエンコードして渡す
+public record TodoCursor(Date createdAt, long id) {
+
+    public String encode() {
+        String raw = createdAt.getTime() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TodoCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            return new TodoCursor(new Date(Long.parseLong(raw.substring(0, sep))), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidRequestException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.todoapp.model;
+
+import java.util.Date;
+
+// 一覧表示用のToDo（読み取り専用）
+// JPQL のコンストラクタ式で直接作るので、エンティティの管理（変更検知のスナップショットなど）の負担がない
+// archived は includeArchived の一覧でアーカイブ済み（todo_archive にある）もの
+public record TodoListItem(Long id, String title, String description, boolean completed,
+                           Date createdAt, Date updatedAt, boolean archived) {
+}
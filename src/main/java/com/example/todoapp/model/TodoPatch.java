@@ -0,0 +1,18 @@
+package com.example.todoapp.model;
+
+// PATCH /api/todos/{id} で受け取る部分更新（null の項目は変えない）
+// version: 読んだときのバージョン。指定すると、その後に誰かが更新していたら 409 にする（If-Match でも指定できる）
+public record TodoPatch(
+        String title,
+        String description,
+        Boolean completed,
+        Long version) {
+
+    public boolean hasChanges() {
+        return title != null || description != null || completed != null;
+    }
+
+    public TodoPatch withVersion(Long version) {
+        return new TodoPatch(title, description, completed, version);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.todoapp.model;
+
+import java.util.List;
+
+// /api/todos/search の1ページ分（nextCursor が null なら最後のページ）
+// degraded が null でなければ、Solrではなく PostgreSQL の簡易検索で返したもの（値はその理由）
+public record TodoSearchPage(List<SolrTodoItem> items, String nextCursor, String degraded) {
+}
@@ -0,0 +1,23 @@
+package com.example.todoapp.model;
+
+import java.util.Date;
+
+// 条件付き検索の条件（null の項目は絞り込まない）
+// sort: relevance / created_asc / created_desc / updated_asc / updated_desc
+// includeArchived: true のときだけアーカイブ済みのToDoも対象にする
+public record TodoSearchRequest(
+        String q,
+        Boolean completed,
+        Date createdFrom,
+        Date createdTo,
+        Date updatedFrom,
+        Date updatedTo,
+        String sort,
+        String cursor,
+        int rows,
+        boolean includeArchived) {
+
+    public TodoSearchRequest withQ(String q) {
+        return new TodoSearchRequest(q, completed, createdFrom, createdTo, updatedFrom, updatedTo, sort, cursor, rows, includeArchived);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.todoapp.model;
+
+import java.util.List;
+import java.util.Map;
+
+// 条件付き検索の結果（items は SolrTodoItem か、view=summary のときは SolrTodoSummary）
+// facets: "completed" -> {"true": 件数, "false": 件数}、"createdAt" / "updatedAt" -> {"today": 件数, "last7days": ...}
+public record TodoSearchResult<T>(
+        List<T> items,
+        long numFound,
+        String nextCursor,
+        Map<String, Map<String, Long>> facets) {
+}
@@ -0,0 +1,5 @@
+package com.example.todoapp.model;
+
+// 完了状態ごとの件数
+public record TodoStatusCounts(long open, long completed, long total) {
+}
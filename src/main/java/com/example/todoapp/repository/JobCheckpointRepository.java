@@ -0,0 +1,30 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.entity.JobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+// ジョブの進捗のデータベース操作
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+
+    // 複数インスタンスのうち1つだけが動くためのリース。position に期限（データベースの時計のエポックミリ秒）を入れる
+    // 期限が切れていれば（または行が無ければ）leaseMs 後までの期限にして、その値を返す。他が持っていれば空
+    // アドバイザリロックと違い、持っている間に接続もトランザクションも使わない
+    @Query(value = """
+            insert into job_checkpoint (name, position, updated_at)
+            values (:name, cast(extract(epoch from clock_timestamp()) * 1000 as bigint) + :leaseMs, localtimestamp)
+            on conflict (name) do update set position = excluded.position, updated_at = excluded.updated_at
+            where job_checkpoint.position < cast(extract(epoch from clock_timestamp()) * 1000 as bigint)
+            returning position""", nativeQuery = true)
+    Optional<Long> tryAcquireLease(@Param("name") String name, @Param("leaseMs") long leaseMs);
+
+    // tryAcquireLease で取ったリースを返す（期限が切れて他に取られていたら何もしない）
+    @Modifying
+    @Query(value = "update job_checkpoint set position = 0, updated_at = localtimestamp "
+            + "where name = :name and position = :lease", nativeQuery = true)
+    int releaseLease(@Param("name") String name, @Param("lease") long lease);
+}
@@ -0,0 +1,38 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.entity.SolrOutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+// アウトボックスのデータベース操作
+public interface SolrOutboxRepository extends JpaRepository<SolrOutboxEntry, Long> {
+
+    // 送るものを古いものから順に取り出す（あきらめたもの、再送の時刻がまだ来ていないものは飛ばす）
+    @Query("select e from SolrOutboxEntry e where e.deadLetteredAt is null "
+            + "and (e.nextAttemptAt is null or e.nextAttemptAt <= :now) order by e.id asc")
+    List<SolrOutboxEntry> findReadyToSend(@Param("now") Date now, Pageable pageable);
+
+    // 送信失敗を記録する（エントリは残して nextAttemptAt 以降にリトライ）
+    @Modifying
+    @Query("update SolrOutboxEntry e set e.attempts = e.attempts + 1, e.lastError = :error, "
+            + "e.nextAttemptAt = :nextAttemptAt where e.id in :ids")
+    int markFailed(@Param("ids") Collection<Long> ids, @Param("error") String error,
+                   @Param("nextAttemptAt") Date nextAttemptAt);
+
+    // 失敗が max-attempts 回に達したものをあきらめる（エントリは調査用に残す）
+    @Modifying
+    @Query("update SolrOutboxEntry e set e.attempts = e.attempts + 1, e.lastError = :error, "
+            + "e.deadLetteredAt = :at where e.id in :ids")
+    int markDeadLettered(@Param("ids") Collection<Long> ids, @Param("error") String error, @Param("at") Date at);
+
+    // 複数インスタンスで同時に動かさないためのロック（トランザクション終了で自動解放）
+    @Query(value = "select pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryLock(@Param("key") long key);
+}
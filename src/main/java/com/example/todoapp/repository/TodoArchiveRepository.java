@@ -0,0 +1,136 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.TodoCursor;
+import com.example.todoapp.model.TodoListItem;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// アーカイブ用テーブル todo_archive（パーティションテーブル）の操作
+// Hibernate のエンティティにはせず（ddl-auto が普通のテーブルとして作ろうとするため）、SQLで扱う
+@Repository
+public class TodoArchiveRepository {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    // 完了していて updated_at が cutoff より前のものを古い順に最大 limit 件ロックし、IDと月（パーティション）を返す
+    // skip locked なので、更新中の行とは取り合わない
+    private static final String LOCK_BATCH_SQL = """
+            select id, cast(date_trunc('month', updated_at) as date) as month from todo
+            where completed and updated_at < ?
+            order by updated_at, id limit ? for update skip locked""";
+
+    // ロックした行を todo から todo_archive に移す
+    // 1文で削除と追加を行うので、途中で失敗しても片方だけになることはない
+    private static final String MOVE_SQL = """
+            with moved as (
+                delete from todo where id = any(?)
+                returning id, title, description, completed, created_at, updated_at)
+            insert into todo_archive (id, title, description, completed, created_at, updated_at, archived_at)
+            select id, title, description, completed, created_at, updated_at, now() from moved
+            returning id""";
+
+    // 月ごとのパーティションに入らなかった行（アーカイブで移す行は updated_at があるので、本来は入らない）
+    private static final String DEFAULT_PARTITION_COUNT_SQL = "select count(*) from todo_archive_default";
+
+    private static final String SELECT_COLUMNS = "id, title, description, completed, created_at, updated_at";
+
+    // includeArchived の一覧：todo と todo_archive を合わせて登録順に（どちらも (created_at, id) のインデックスで読む）
+    private static final String FIRST_PAGE_SQL = pageSql("");
+    private static final String PAGE_AFTER_SQL = pageSql("where (created_at, id) > (?, ?) ");
+
+    private static String pageSql(String condition) {
+        return "select * from ("
+                + " (select " + SELECT_COLUMNS + ", false as archived from todo "
+                + condition + "order by created_at, id limit ?)"
+                + " union all"
+                + " (select " + SELECT_COLUMNS + ", true as archived from todo_archive "
+                + condition + "order by created_at, id limit ?)"
+                + ") t order by created_at, id limit ?";
+    }
+
+    private static final RowMapper<Todo> TODO_ROW_MAPPER = (rs, rowNum) -> {
+        Todo todo = new Todo(rs.getString("title"), rs.getString("description"), rs.getBoolean("completed"));
+        todo.setId(rs.getLong("id"));
+        todo.setCreatedAt(toDate(rs.getTimestamp("created_at")));
+        todo.setUpdatedAt(toDate(rs.getTimestamp("updated_at")));
+        return todo;
+    };
+
+    private static final RowMapper<TodoListItem> LIST_ITEM_ROW_MAPPER = (rs, rowNum) -> new TodoListItem(
+            rs.getLong("id"), rs.getString("title"), rs.getString("description"), rs.getBoolean("completed"),
+            toDate(rs.getTimestamp("created_at")), toDate(rs.getTimestamp("updated_at")), rs.getBoolean("archived"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TodoArchiveRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // 移す行をロックする（呼び出し側のトランザクションで実行し、同じトランザクションで moveBatch すること）
+    public ArchiveBatch lockBatch(Date cutoff, int limit) {
+        List<Long> ids = new ArrayList<>();
+        Set<YearMonth> months = new TreeSet<>();
+        jdbcTemplate.query(LOCK_BATCH_SQL, rs -> {
+            ids.add(rs.getLong("id"));
+            months.add(YearMonth.from(rs.getDate("month").toLocalDate()));
+        }, new Timestamp(cutoff.getTime()), limit);
+        return new ArchiveBatch(ids, months);
+    }
+
+    // 月のパーティションが無ければ作る（親テーブルのロックを取るので、無かったときだけ少し待たせる）
+    public void createPartitions(Collection<YearMonth> months) {
+        for (YearMonth ym : months) {
+            jdbcTemplate.execute("create table if not exists todo_archive_" + ym.format(PARTITION_SUFFIX)
+                    + " partition of todo_archive for values from ('" + ym.atDay(1) + "') to ('" + ym.plusMonths(1).atDay(1) + "')");
+        }
+    }
+
+    // 移したToDoのIDを返す（lockBatch と同じトランザクションで実行すること）
+    public List<Long> moveBatch(Collection<Long> ids) {
+        return jdbcTemplate.queryForList(MOVE_SQL, Long.class, (Object) ids.toArray(new Long[0]));
+    }
+
+    public long countInDefaultPartition() {
+        Long count = jdbcTemplate.queryForObject(DEFAULT_PARTITION_COUNT_SQL, Long.class);
+        return count != null ? count : 0;
+    }
+
+    // Solrへ送るためにアーカイブ済みのToDoを読む（管理されないエンティティとして返す）
+    public List<Todo> findAllById(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query("select " + SELECT_COLUMNS + " from todo_archive where id = any(?)",
+                TODO_ROW_MAPPER, (Object) ids.toArray(new Long[0]));
+    }
+
+    // 通常のToDoとアーカイブ済みのToDoを合わせた一覧（after が null なら先頭から、あればその後ろを limit 件）
+    public List<TodoListItem> findPageIncludingArchived(TodoCursor after, int limit) {
+        if (after == null) {
+            return jdbcTemplate.query(FIRST_PAGE_SQL, LIST_ITEM_ROW_MAPPER, limit, limit, limit);
+        }
+        Timestamp createdAt = new Timestamp(after.createdAt().getTime());
+        return jdbcTemplate.query(PAGE_AFTER_SQL, LIST_ITEM_ROW_MAPPER,
+                createdAt, after.id(), limit, createdAt, after.id(), limit, limit);
+    }
+
+    private static Date toDate(Timestamp timestamp) {
+        return timestamp == null ? null : new Date(timestamp.getTime());
+    }
+
+    // lockBatch でロックした行のIDと、その行の月
+    public record ArchiveBatch(List<Long> ids, Set<YearMonth> months) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.TodoPatch;
+
+import java.util.Date;
+import java.util.Optional;
+
+// TodoRepository に足す部分更新（実装は TodoPatchRepositoryImpl）
+public interface TodoPatchRepository {
+
+    // patch で指定された列だけを1文で更新し、更新後の行を返す
+    // 行が無いとき・patch.version() と今のバージョンが違うときは空
+    Optional<Todo> patch(Long id, TodoPatch patch, Date updatedAt);
+}
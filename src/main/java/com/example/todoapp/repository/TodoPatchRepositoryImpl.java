@@ -0,0 +1,56 @@
+package com.example.todoapp.repository;
+
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.TodoPatch;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// update ... returning で、読んでから書くまでの間に他の更新が割り込まないようにする（往復も1回）
+// 変える列だけを set に並べるので、指定されなかった列を古い値で上書きすることはない
+public class TodoPatchRepositoryImpl implements TodoPatchRepository {
+
+    private final EntityManager entityManager;
+
+    public TodoPatchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Optional<Todo> patch(Long id, TodoPatch patch, Date updatedAt) {
+        Map<String, Object> columns = new LinkedHashMap<>();
+        if (patch.title() != null) {
+            columns.put("title", patch.title());
+        }
+        if (patch.description() != null) {
+            columns.put("description", patch.description());
+        }
+        if (patch.completed() != null) {
+            columns.put("completed", patch.completed());
+        }
+
+        StringBuilder sql = new StringBuilder("update todo set ");
+        columns.keySet().forEach(column -> sql.append(column).append(" = :").append(column).append(", "));
+        sql.append("updated_at = :updatedAt, version = version + 1 where id = :id");
+        if (patch.version() != null) {
+            sql.append(" and version = :version");
+        }
+        sql.append(" returning *");
+
+        Query query = entityManager.createNativeQuery(sql.toString(), Todo.class);
+        columns.forEach(query::setParameter);
+        query.setParameter("updatedAt", updatedAt);
+        query.setParameter("id", id);
+        if (patch.version() != null) {
+            query.setParameter("version", patch.version());
+        }
+        @SuppressWarnings("unchecked")
+        List<Todo> rows = query.getResultList();
+        return rows.stream().findFirst();
+    }
+}
@@ -1,9 +1,127 @@
 package com.example.todoapp.repository;
 
 import com.example.todoapp.entity.Todo; // Todoのデータの形を使うよ
+import com.example.todoapp.model.TodoListItem; // 一覧表示用の読み取り専用のToDo
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository; // データベースを使いやすくする道具だよ
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 // TodoRepository はデータベースとやりとりするやつ
-public interface TodoRepository extends JpaRepository<Todo, Long> {
+public interface TodoRepository extends JpaRepository<Todo, Long>, TodoPatchRepository {
     // 特別なことを書かなくても、データの保存・取り出し・削除などができるようになる
+
+    // キーセットページング：最初のページ（createdAt, id の順）
+    @Query("select t from Todo t order by t.createdAt asc, t.id asc")
+    List<Todo> findFirstPage(Pageable pageable);
+
+    // キーセットページング：カーソルより後ろのページ。(created_at, id) のインデックスで毎回同じコストになる
+    @Query("select t from Todo t where (t.createdAt, t.id) > (:createdAt, :id) order by t.createdAt asc, t.id asc")
+    List<Todo> findPageAfter(@Param("createdAt") Date createdAt, @Param("id") Long id, Pageable pageable);
+
+    // 完了/未完了の切り替えを1文で行い、更新後の行を返す（行が無ければ空）
+    // 読んでから書くのではないので、同時に切り替えても片方の更新が消えることはない
+    @Query(value = "update todo set completed = not completed, updated_at = :updatedAt, version = version + 1 "
+            + "where id = :id returning *", nativeQuery = true)
+    Optional<Todo> toggleCompleted(@Param("id") Long id, @Param("updatedAt") Date updatedAt);
+
+    // エクスポート用：全件を前から順に少しずつ読む（呼び出し側はトランザクション内で使い、必ず close すること）
+    // fetch size を指定すると PostgreSQL がサーバー側カーソルで返すので、全件をメモリに載せない
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("select t from Todo t order by t.id")
+    Stream<Todo> streamAllByOrderById();
+
+    int EXPORT_FETCH_SIZE = 500;
+
+    // 再インデックス用：IDの範囲で読む（主キーの範囲検索なので並列に読んでも速い）
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<Todo> findByIdBetweenOrderById(Long fromId, Long toId);
+
+    // 入力候補（サジェスト）の索引を作るときに、IDとタイトルだけを読む
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    @Query("select t.id as id, t.title as title from Todo t")
+    List<TodoTitle> findAllTitles();
+
+    interface TodoTitle {
+        Long getId();
+        String getTitle();
+    }
+
+    // ↓ 一覧画面向けのビュー。エンティティではなく TodoListItem（読み取り専用のレコード）で返す
+    // どれも (条件の列, createdAt または updatedAt, id) のインデックスに沿ったキーセットページング
+
+    String LIST_ITEM = "select new com.example.todoapp.model.TodoListItem("
+            + "t.id, t.title, t.description, t.completed, t.createdAt, t.updatedAt, false) from Todo t ";
+
+    // 未完了/完了の一覧：最初のページ（idx_todo_completed_created_at_id）
+    @Query(LIST_ITEM + "where t.completed = :completed order by t.createdAt asc, t.id asc")
+    List<TodoListItem> findByStatusFirstPage(@Param("completed") boolean completed, Pageable pageable);
+
+    // 未完了/完了の一覧：カーソルより後ろのページ
+    @Query(LIST_ITEM + "where t.completed = :completed and (t.createdAt, t.id) > (:createdAt, :id) "
+            + "order by t.createdAt asc, t.id asc")
+    List<TodoListItem> findByStatusAfter(@Param("completed") boolean completed,
+                                         @Param("createdAt") Date createdAt, @Param("id") Long id, Pageable pageable);
+
+    // 登録日時が [from, to) のもの（idx_todo_created_at_id）。最初のページは (from, 0) より後ろとして読む
+    @Query(LIST_ITEM + "where t.createdAt < :to and (t.createdAt, t.id) > (:createdAt, :id) "
+            + "order by t.createdAt asc, t.id asc")
+    List<TodoListItem> findCreatedBefore(@Param("to") Date to,
+                                         @Param("createdAt") Date createdAt, @Param("id") Long id, Pageable pageable);
+
+    // 更新日時が [from, to) のもの（idx_todo_updated_at_id）
+    @Query(LIST_ITEM + "where t.updatedAt < :to and (t.updatedAt, t.id) > (:updatedAt, :id) "
+            + "order by t.updatedAt asc, t.id asc")
+    List<TodoListItem> findUpdatedBefore(@Param("to") Date to,
+                                         @Param("updatedAt") Date updatedAt, @Param("id") Long id, Pageable pageable);
+
+    // 完了状態ごとの件数（行が多ければ idx_todo_completed_created_at_id のインデックスだけで数えられる）
+    @Query("select t.completed as completed, count(t) as count from Todo t group by t.completed")
+    List<StatusCount> countByStatus();
+
+    interface StatusCount {
+        boolean getCompleted();
+        long getCount();
+    }
+
+    // ↓ Solrが使えないときの簡易検索（TodoSearchService のフォールバック）
+    // タイトルか詳細に pattern（ILIKE）を含むものを登録順に。pg_trgm の GIN インデックス（V3）で候補を絞る
+
+    @Query(value = "select * from todo where title ilike :pattern or description ilike :pattern "
+            + "order by created_at, id offset :offset limit :limit", nativeQuery = true)
+    List<Todo> searchByText(@Param("pattern") String pattern, @Param("offset") int offset, @Param("limit") int limit);
+
+    @Query(value = "select * from todo where (title ilike :pattern or description ilike :pattern) "
+            + "and (created_at, id) > (:createdAt, :id) order by created_at, id limit :limit", nativeQuery = true)
+    List<Todo> searchByTextAfter(@Param("pattern") String pattern, @Param("createdAt") Date createdAt,
+                                 @Param("id") long id, @Param("limit") int limit);
+
+    // (updatedAt, id) より後で until 以前に更新されたものを更新順に limit 件（SolrReconciler 用）
+    @Query(value = "select * from todo where (updated_at, id) > (:updatedAt, :id) and updated_at <= :until "
+            + "order by updated_at, id limit :limit", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<Todo> findUpdatedAfter(@Param("updatedAt") Date updatedAt, @Param("id") long id,
+                                @Param("until") Date until, @Param("limit") int limit);
+
+    // updated_at が since 以降のもののID（再インデックスの後にアウトボックスで送り直す分）
+    @Query("select t.id from Todo t where t.updatedAt >= :since")
+    List<Long> findIdsUpdatedSince(@Param("since") Date since);
+
+    @Query("select min(t.id) from Todo t")
+    Long findMinId();
+
+    @Query("select max(t.id) from Todo t")
+    Long findMaxId();
 }
@@ -0,0 +1,57 @@
+package com.example.todoapp.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+// 削除されたToDoの記録 todo_tombstone（todo の削除トリガーが書く）の操作
+@Repository
+public class TodoTombstoneRepository {
+
+    public record Tombstone(long todoId, Date deletedAt) {
+    }
+
+    private static final RowMapper<Tombstone> ROW_MAPPER = (rs, rowNum) ->
+            new Tombstone(rs.getLong("todo_id"), new Date(rs.getTimestamp("deleted_at").getTime()));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TodoTombstoneRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // 削除の記録を見てよい時刻（データベースの時計で settle-ms 前）
+    // 書き込み中のトランザクションがあれば、その開始時刻より前まで（コミット前の削除は、その開始時刻以降の deleted_at で後から見えるため）
+    // pg_stat_activity は同じロール（または pg_read_all_stats）のセッションしか xact_start が見えない
+    public Date settledUntil(long settleMs) {
+        Timestamp until = jdbcTemplate.queryForObject("""
+                        select least(clock_timestamp() - make_interval(secs => ? / 1000.0),
+                                     coalesce((select min(xact_start) from pg_stat_activity
+                                               where backend_xid is not null and pid <> pg_backend_pid()), 'infinity'))""",
+                Timestamp.class, settleMs);
+        return new Date(until.getTime());
+    }
+
+    // (deletedAt, todoId) より後で until 以前に削除されたものを古い順に limit 件
+    public List<Tombstone> findDeletedAfter(Date deletedAt, long todoId, Date until, int limit) {
+        return jdbcTemplate.query("""
+                        select todo_id, deleted_at from todo_tombstone
+                        where (deleted_at, todo_id) > (?, ?) and deleted_at <= ?
+                        order by deleted_at, todo_id limit ?""",
+                ROW_MAPPER, new Timestamp(deletedAt.getTime()), todoId, new Timestamp(until.getTime()), limit);
+    }
+
+    // since 以降に削除（アーカイブを含む）されたもののID
+    public List<Long> findIdsDeletedSince(Date since) {
+        return jdbcTemplate.queryForList("select distinct todo_id from todo_tombstone where deleted_at >= ?",
+                Long.class, new Timestamp(since.getTime()));
+    }
+
+    public int deleteBefore(Date before) {
+        return jdbcTemplate.update("delete from todo_tombstone where deleted_at < ?", new Timestamp(before.getTime()));
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.todoapp.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Solrへの登録・削除をまとめて非同期に送るためのキュー
+// ・同じIDへの更新は最後のものだけを残す（コアレス）
+// ・batch-size 件たまるか flush-interval-ms 経過したらまとめて add / deleteById
+// ・commit はせず commitWithin（ソフトコミット）で反映までの最大遅延を決める
+// ・キューが満杯なら offer-timeout-ms まで待ち、それでも空かなければエラー（バックプレッシャー）
+@Component
+public class SolrIndexingPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolrIndexingPipeline.class);
+
+    private final SolrClient solrClient;
+    private final SolrMetrics solrMetrics;
+    private final MeterRegistry meterRegistry;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int commitWithinMs;
+    private final long offerTimeoutNanos;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long shutdownTimeoutMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    // IDごとの未送信の操作（挿入順 = 送信順）
+    private final LinkedHashMap<String, PendingOperation> pending = new LinkedHashMap<>();
+
+    private volatile boolean running = true;
+    private Thread worker;
+
+    public SolrIndexingPipeline(SolrClient solrClient,
+                                SolrMetrics solrMetrics,
+                                MeterRegistry meterRegistry,
+                                @Value("${solr.indexing.queue-capacity:10000}") int queueCapacity,
+                                @Value("${solr.indexing.batch-size:200}") int batchSize,
+                                @Value("${solr.indexing.flush-interval-ms:200}") long flushIntervalMs,
+                                @Value("${solr.indexing.commit-within-ms:1000}") int commitWithinMs,
+                                @Value("${solr.indexing.offer-timeout-ms:2000}") long offerTimeoutMs,
+                                @Value("${solr.indexing.max-attempts:5}") int maxAttempts,
+                                @Value("${solr.indexing.retry-backoff-ms:1000}") long retryBackoffMs,
+                                @Value("${solr.indexing.shutdown-timeout-ms:10000}") long shutdownTimeoutMs) {
+        this.solrClient = solrClient;
+        this.solrMetrics = solrMetrics;
+        this.meterRegistry = meterRegistry;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.commitWithinMs = commitWithinMs;
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        Gauge.builder("solr.index.queue.depth", this, SolrIndexingPipeline::size)
+                .description("Solrへの送信待ちの操作数")
+                .register(meterRegistry);
+        worker = Thread.ofPlatform().name("solr-indexer").daemon().start(this::runLoop);
+        logger.info("Solr indexing pipeline started (capacity={}, batchSize={}, commitWithin={}ms)",
+                queueCapacity, batchSize, commitWithinMs);
+    }
+
+    // アプリ終了時はキューに残っている分を送り切ってから止める
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        lock.lock();
+        try {
+            running = false;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        worker.join(shutdownTimeoutMs);
+        if (worker.isAlive()) {
+            logger.warn("Solr indexing pipeline did not drain within {}ms; {} operations left", shutdownTimeoutMs, size());
+        } else {
+            logger.info("Solr indexing pipeline drained and stopped");
+        }
+    }
+
+    // 登録（または更新）をキューに積む。Solrに送られたら future が完了する
+    public CompletableFuture<Void> enqueueAdd(SolrInputDocument doc) throws IOException {
+        return enqueue(String.valueOf(doc.getFieldValue("id")), doc);
+    }
+
+    // 削除をキューに積む
+    public CompletableFuture<Void> enqueueDelete(String id) throws IOException {
+        return enqueue(id, null);
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(String id, SolrInputDocument doc) throws IOException {
+        lock.lock();
+        try {
+            long remaining = offerTimeoutNanos;
+            while (true) {
+                if (!running) {
+                    throw new IOException("Solr indexing pipeline is shutting down");
+                }
+                // 同じIDがまだ送られていなければ中身だけ差し替える
+                PendingOperation existing = pending.get(id);
+                if (existing != null) {
+                    existing.document = doc;
+                    existing.attempts = 0;
+                    return existing.future;
+                }
+                if (pending.size() < queueCapacity) {
+                    break;
+                }
+                if (remaining <= 0) {
+                    throw new IOException("Solr indexing queue is full (" + queueCapacity + " pending operations)");
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+            PendingOperation op = new PendingOperation(id, doc);
+            pending.put(id, op);
+            if (pending.size() >= batchSize) {
+                notEmpty.signal();
+            } else if (pending.size() == 1) {
+                notEmpty.signal(); // 最初の1件でワーカーの待ち時間を開始させる
+            }
+            return op.future;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for space in the Solr indexing queue");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runLoop() {
+        while (true) {
+            List<PendingOperation> batch;
+            try {
+                batch = takeBatch();
+            } catch (InterruptedException e) {
+                if (running) {
+                    continue;
+                }
+                batch = drainRemaining();
+            }
+            if (batch == null) {
+                return;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+        }
+    }
+
+    // 1件目が来てから flush-interval の間、batch-size に達するのを待つ
+    private List<PendingOperation> takeBatch() throws InterruptedException {
+        lock.lock();
+        try {
+            while (pending.isEmpty()) {
+                if (!running) {
+                    return null;
+                }
+                notEmpty.await();
+            }
+            long remaining = flushIntervalNanos;
+            while (running && pending.size() < batchSize && remaining > 0) {
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            return drain(batchSize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<PendingOperation> drainRemaining() {
+        lock.lock();
+        try {
+            return pending.isEmpty() ? null : drain(batchSize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // lock を持った状態で呼ぶこと
+    private List<PendingOperation> drain(int max) {
+        List<PendingOperation> batch = new ArrayList<>(Math.min(max, pending.size()));
+        Iterator<PendingOperation> it = pending.values().iterator();
+        while (it.hasNext() && batch.size() < max) {
+            batch.add(it.next());
+            it.remove();
+        }
+        notFull.signalAll();
+        return batch;
+    }
+
+    private void flush(List<PendingOperation> batch) {
+        List<SolrInputDocument> docs = new ArrayList<>();
+        List<String> deleteIds = new ArrayList<>();
+        for (PendingOperation op : batch) {
+            if (op.document != null) {
+                docs.add(op.document);
+            } else {
+                deleteIds.add(op.id);
+            }
+        }
+
+        try {
+            // 各IDは1バッチに1回しか出てこないので add と delete の順番は問わない
+            if (!docs.isEmpty()) {
+                solrMetrics.record("add", () -> solrClient.add(docs, commitWithinMs));
+            }
+            if (!deleteIds.isEmpty()) {
+                solrMetrics.record("delete", () -> solrClient.deleteById(deleteIds, commitWithinMs));
+            }
+            logger.debug("Flushed {} adds and {} deletes to Solr", docs.size(), deleteIds.size());
+            batch.forEach(op -> op.future.complete(null));
+        } catch (SolrServerException | IOException | RuntimeException e) {
+            logger.error("Failed to flush {} operations to Solr", batch.size(), e);
+            solrMetrics.indexFailure();
+            requeue(batch, e);
+            sleepQuietly(retryBackoffMs);
+        }
+    }
+
+    // 失敗した操作を戻す。その間に新しい操作が来ていたらそちらを優先する
+    private void requeue(List<PendingOperation> batch, Exception cause) {
+        lock.lock();
+        try {
+            for (PendingOperation op : batch) {
+                op.attempts++;
+                PendingOperation newer = pending.get(op.id);
+                if (newer != null) {
+                    newer.future.whenComplete((v, t) -> {
+                        if (t == null) {
+                            op.future.complete(null);
+                        } else {
+                            op.future.completeExceptionally(t);
+                        }
+                    });
+                } else if (op.attempts >= maxAttempts) {
+                    logger.error("Giving up on Solr operation for ID {} after {} attempts", op.id, op.attempts);
+                    op.future.completeExceptionally(cause);
+                } else {
+                    pending.put(op.id, op);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sleepQuietly(long millis) {
+        if (!running) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            // シャットダウン時はすぐに残りの送信に戻る
+        }
+    }
+
+    private static final class PendingOperation {
+        private final String id;
+        private SolrInputDocument document; // null のときは削除
+        private int attempts;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingOperation(String id, SolrInputDocument document) {
+            this.id = id;
+            this.document = document;
+        }
+    }
+}
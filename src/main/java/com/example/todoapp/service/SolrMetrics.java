@@ -0,0 +1,61 @@
+package com.example.todoapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+// Solrへのリクエスト時間（solr.requests）と失敗数を記録する
+// operation タグ: add / delete / commit / query / get
+@Component
+public class SolrMetrics {
+
+    @FunctionalInterface
+    public interface SolrCall<T> {
+        T call() throws IOException, SolrServerException;
+    }
+
+    private final MeterRegistry registry;
+    private final Counter indexFailures;
+
+    public SolrMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.indexFailures = Counter.builder("solr.index.failures")
+                .description("Solrへの登録・削除バッチの送信失敗回数")
+                .register(registry);
+    }
+
+    public <T> T record(String operation, SolrCall<T> call) throws IOException, SolrServerException {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        try {
+            T result = call.call();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(timer(operation, outcome));
+        }
+    }
+
+    public <T> CompletableFuture<T> recordAsync(String operation, CompletableFuture<T> future) {
+        Timer.Sample sample = Timer.start(registry);
+        return future.whenComplete((result, error) -> sample.stop(timer(operation, error == null ? "success" : "error")));
+    }
+
+    public void indexFailure() {
+        indexFailures.increment();
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return Timer.builder("solr.requests")
+                .description("Solrへのリクエスト時間")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.entity.SolrOutboxEntry;
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.SolrTodoItem;
+import com.example.todoapp.repository.JobCheckpointRepository;
+import com.example.todoapp.repository.SolrOutboxRepository;
+import com.example.todoapp.repository.TodoArchiveRepository;
+import com.example.todoapp.repository.TodoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// アウトボックスに溜まった変更をSolrに送るバックグラウンド処理
+// 送るのは「その時点のDBの状態」なので、何度送っても、順番が前後しても結果は同じ（冪等）
+// ・読み込み（短いトランザクション）→ 送信（トランザクションの外）→ 削除・失敗の記録（短いトランザクション）の順に行う
+//   Solrの応答を待つ間、接続もロックも持たない
+// ・複数インスタンスで同時に送らないよう、job_checkpoint のリース（send-timeout-ms より長い期限）を取ってから動く
+// ・失敗したものは retry-backoff-ms から倍々に（max-backoff-ms まで）間を空けて送り直し、その間は後ろのエントリを先に送る
+//   max-attempts 回失敗したものはあきらめて（dead_lettered_at）、もう読まない
+@Service
+public class SolrOutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolrOutboxRelay.class);
+    private static final String LEASE_NAME = "solr-outbox-relay";
+    private static final long LEASE_MARGIN_MS = 30_000; // 送信の待ち時間の上限に加える、読み込みと記録の分
+
+    private final SolrOutboxRepository outboxRepository;
+    private final TodoRepository todoRepository;
+    private final TodoArchiveRepository todoArchiveRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final SolrTodoService solrTodoService;
+    private final TransactionTemplate transaction;
+    private final Counter relayFailures;
+    private final Counter deadLettered;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long maxBackoffMs;
+
+    public SolrOutboxRelay(SolrOutboxRepository outboxRepository,
+                           TodoRepository todoRepository,
+                           TodoArchiveRepository todoArchiveRepository,
+                           JobCheckpointRepository checkpointRepository,
+                           SolrTodoService solrTodoService,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${solr.outbox.batch-size:500}") int batchSize,
+                           @Value("${solr.outbox.send-timeout-ms:30000}") long sendTimeoutMs,
+                           @Value("${solr.outbox.max-attempts:10}") int maxAttempts,
+                           @Value("${solr.outbox.retry-backoff-ms:1000}") long retryBackoffMs,
+                           @Value("${solr.outbox.max-backoff-ms:300000}") long maxBackoffMs) {
+        this.outboxRepository = outboxRepository;
+        this.todoRepository = todoRepository;
+        this.todoArchiveRepository = todoArchiveRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.solrTodoService = solrTodoService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.relayFailures = Counter.builder("solr.outbox.relay.failures")
+                .description("アウトボックスからSolrへの送信失敗回数")
+                .register(meterRegistry);
+        this.deadLettered = Counter.builder("solr.outbox.dead-lettered")
+                .description("max-attempts 回失敗して送るのをあきらめたアウトボックスのエントリ数")
+                .register(meterRegistry);
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    @Scheduled(fixedDelayString = "${solr.outbox.poll-interval-ms:500}")
+    public void relay() {
+        // 他のインスタンスがリレー中なら今回は何もしない（同じToDoを並行して送らないように）
+        Long lease = transaction.execute(tx ->
+                checkpointRepository.tryAcquireLease(LEASE_NAME, sendTimeoutMs + LEASE_MARGIN_MS).orElse(null));
+        if (lease == null) {
+            return;
+        }
+        try {
+            relayBatch();
+        } finally {
+            transaction.executeWithoutResult(tx -> checkpointRepository.releaseLease(LEASE_NAME, lease));
+        }
+    }
+
+    private void relayBatch() {
+        Batch batch = transaction.execute(tx -> readBatch());
+        if (batch == null) {
+            return;
+        }
+
+        Map<Long, CompletableFuture<Void>> sends = send(batch);
+        try {
+            CompletableFuture.allOf(sends.values().toArray(new CompletableFuture<?>[0])).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // どれが失敗したかは下で1件ずつ見る
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return; // 記録しなかったものは次回また送る
+        }
+
+        Map<Long, String> failures = new LinkedHashMap<>(); // ToDoのID -> 失敗の理由
+        sends.forEach((todoId, future) -> {
+            String error = failureOf(future);
+            if (error != null) {
+                failures.put(todoId, error);
+            }
+        });
+        transaction.executeWithoutResult(tx -> record(batch.entries(), failures));
+        if (failures.isEmpty()) {
+            logger.debug("Relayed {} outbox entries ({} documents) to Solr", batch.entries().size(), sends.size());
+        } else {
+            logger.error("Failed to relay {} of {} documents to Solr; will retry: {}",
+                    failures.size(), sends.size(), failures.values().iterator().next());
+            relayFailures.increment();
+        }
+    }
+
+    private Batch readBatch() {
+        List<SolrOutboxEntry> entries = outboxRepository.findReadyToSend(new Date(), PageRequest.of(0, batchSize));
+        if (entries.isEmpty()) {
+            return null;
+        }
+        // 同じToDoへの変更は1回送ればよい。操作の種類ではなく、今どこにあるかで送るものを決める
+        // （再送を待っている古い INDEX が、後のアーカイブ・削除の後で送られても、今の状態になるように）
+        List<Long> todoIds = entries.stream().map(SolrOutboxEntry::getTodoId).distinct().collect(Collectors.toList());
+        Map<Long, Todo> rows = todoRepository.findAllById(todoIds).stream()
+                .collect(Collectors.toMap(Todo::getId, Function.identity()));
+        // todo に無いものは todo_archive から読み、アーカイブ済みの印を付けて送る
+        List<Long> missingIds = todoIds.stream().filter(id -> !rows.containsKey(id)).collect(Collectors.toList());
+        Map<Long, Todo> archivedRows = missingIds.isEmpty() ? Map.of() : todoArchiveRepository.findAllById(missingIds).stream()
+                .collect(Collectors.toMap(Todo::getId, Function.identity(), (a, b) -> a));
+        return new Batch(entries, todoIds, rows, archivedRows);
+    }
+
+    private Map<Long, CompletableFuture<Void>> send(Batch batch) {
+        Map<Long, CompletableFuture<Void>> sends = new LinkedHashMap<>();
+        for (Long todoId : batch.todoIds()) {
+            Todo todo = batch.rows().get(todoId);
+            Todo archived = batch.archivedRows().get(todoId);
+            CompletableFuture<Void> sent;
+            try {
+                if (todo != null) {
+                    sent = solrTodoService.indexTodoItem(SolrTodoItemMapper.toSolrTodoItem(todo));
+                } else if (archived != null) {
+                    SolrTodoItem item = SolrTodoItemMapper.toSolrTodoItem(archived);
+                    item.setArchived(true);
+                    sent = solrTodoService.indexTodoItem(item);
+                } else {
+                    // 行が無い = 削除済み（INDEXの後に消された場合も含む）
+                    sent = solrTodoService.deleteTodoItem(String.valueOf(todoId));
+                }
+            } catch (IOException | SolrServerException | RuntimeException e) {
+                sent = CompletableFuture.failedFuture(e);
+            }
+            sends.put(todoId, sent);
+        }
+        return sends;
+    }
+
+    // 送れたものは消し、失敗したものは回数を数えて次の時刻を決める（max-attempts に達したらあきらめる）
+    private void record(List<SolrOutboxEntry> entries, Map<Long, String> failures) {
+        Date now = new Date();
+        List<Long> sent = new ArrayList<>();
+        Map<Failure, List<Long>> failed = new LinkedHashMap<>(); // 同じ回数・同じ理由のものはまとめて1文で更新する
+        for (SolrOutboxEntry entry : entries) {
+            String error = failures.get(entry.getTodoId());
+            if (error == null) {
+                sent.add(entry.getId());
+            } else {
+                failed.computeIfAbsent(new Failure(entry.getAttempts() + 1, error), f -> new ArrayList<>()).add(entry.getId());
+            }
+        }
+        if (!sent.isEmpty()) {
+            outboxRepository.deleteAllByIdInBatch(sent);
+        }
+        failed.forEach((failure, ids) -> {
+            if (failure.attempts() >= maxAttempts) {
+                logger.error("Giving up on {} outbox entries after {} attempts: {}", ids.size(), failure.attempts(), failure.error());
+                outboxRepository.markDeadLettered(ids, failure.error(), now);
+                deadLettered.increment(ids.size());
+            } else {
+                outboxRepository.markFailed(ids, failure.error(), new Date(now.getTime() + backoffMs(failure.attempts())));
+            }
+        });
+    }
+
+    // attempts 回目の失敗の後に空ける時間（retry-backoff-ms, その2倍, 4倍, ... max-backoff-ms まで）
+    long backoffMs(int attempts) {
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(maxBackoffMs, retryBackoffMs << doublings);
+    }
+
+    // 失敗していれば理由、送れていれば null（send-timeout-ms までに終わらなかったものも失敗）
+    private String failureOf(CompletableFuture<Void> future) {
+        if (!future.isDone()) {
+            return "Timed out after " + sendTimeoutMs + "ms";
+        }
+        if (!future.isCompletedExceptionally()) {
+            return null;
+        }
+        try {
+            future.join();
+            return null;
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return abbreviate(String.valueOf(cause));
+        }
+    }
+
+    private String abbreviate(String message) {
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+
+    private record Batch(List<SolrOutboxEntry> entries, List<Long> todoIds, Map<Long, Todo> rows, Map<Long, Todo> archivedRows) {
+    }
+
+    private record Failure(int attempts, String error) {
+    }
+}
@@ -0,0 +1,300 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.entity.JobCheckpoint;
+import com.example.todoapp.entity.SolrOutboxEntry;
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.SolrTodoItem;
+import com.example.todoapp.repository.JobCheckpointRepository;
+import com.example.todoapp.repository.SolrOutboxRepository;
+import com.example.todoapp.repository.TodoArchiveRepository;
+import com.example.todoapp.repository.TodoRepository;
+import com.example.todoapp.repository.TodoTombstoneRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// PostgreSQL と Solr のずれを、前回から変わった分だけ見て直すバックグラウンド処理（全件の送り直しはしない）
+// ・updated_at が前回の位置（ウォーターマーク、job_checkpoint）より後のToDoを batch-size 件ずつ読み、
+//   Solrのリアルタイム取得（/get、コミット前の分も見える）と内容・updatedAt を比べて、違うものだけアウトボックス（INDEX）に積む
+// ・削除とアーカイブは todo の削除トリガーが todo_tombstone に残すので、同じように前回の位置から読み、
+//   todo_archive にあれば archived_b が立っているか（ARCHIVE）、無ければSolrに残っていないか（DELETE）を見る
+// ・直近 settle-ms の変更はアウトボックスから送られている途中なので見ない（コミットの順番のずれもここで吸収する）
+// ・送るのはアウトボックスのリレーに任せる（その時点のDBの状態を送るので、並行する更新と競合しない）
+// ・1回の実行は max-batches-per-run まで。Solrが使えないときは位置を進めず、次回その位置からやり直す
+// ・削除の位置はデータベースの時計で決める（deleted_at はデータベースが付けるので。更新日時はアプリが付けるのでJVMの時計）
+// ・複数のインスタンスで同じ回を交互に進めないよう、1回の実行の間セッション単位のアドバイザリロックを持ち続ける
+// ・Solr への問い合わせはトランザクションの外で行う（読むトランザクションと、積んで位置を進めるトランザクションを分ける）
+@Service
+public class SolrReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolrReconciler.class);
+    private static final long RECONCILE_LOCK_KEY = 0x53_52_45_43_4F_4EL; // pg_try_advisory_lock 用の固定キー
+    private static final String UPDATED_CHECKPOINT = "solr-reconcile-updated";
+    private static final String DELETED_CHECKPOINT = "solr-reconcile-deleted";
+
+    private final TodoRepository todoRepository;
+    private final TodoArchiveRepository archiveRepository;
+    private final TodoTombstoneRepository tombstoneRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final SolrOutboxRepository outboxRepository;
+    private final SolrTodoService solrTodoService;
+    private final DataSource dataSource;
+    private final TransactionTemplate transaction;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long settleMs;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration initialLookback;
+    private final Duration tombstoneRetention;
+
+    public SolrReconciler(TodoRepository todoRepository,
+                          TodoArchiveRepository archiveRepository,
+                          TodoTombstoneRepository tombstoneRepository,
+                          JobCheckpointRepository checkpointRepository,
+                          SolrOutboxRepository outboxRepository,
+                          SolrTodoService solrTodoService,
+                          DataSource dataSource,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${solr.reconcile.enabled:true}") boolean enabled,
+                          @Value("${solr.reconcile.settle-ms:60000}") long settleMs,
+                          @Value("${solr.reconcile.batch-size:500}") int batchSize,
+                          @Value("${solr.reconcile.max-batches-per-run:100}") int maxBatchesPerRun,
+                          @Value("${solr.reconcile.initial-lookback:1d}") Duration initialLookback,
+                          @Value("${solr.reconcile.tombstone-retention:7d}") Duration tombstoneRetention) {
+        this.todoRepository = todoRepository;
+        this.archiveRepository = archiveRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.outboxRepository = outboxRepository;
+        this.solrTodoService = solrTodoService;
+        this.dataSource = dataSource;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.settleMs = settleMs;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.initialLookback = initialLookback;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    @Scheduled(initialDelayString = "${solr.reconcile.interval-ms:60000}", fixedDelayString = "${solr.reconcile.interval-ms:60000}")
+    public void reconcileScheduled() {
+        if (enabled) {
+            reconcile();
+        }
+    }
+
+    // 1回分を実行して、直すためにアウトボックスに積んだ件数を返す
+    // ロック用の接続（プライマリ）を1本、実行の間持つ。他のインスタンスが実行中なら今回は何もしない
+    public long reconcile() {
+        try (Connection lockConnection = dataSource.getConnection()) {
+            if (!advisoryLock(lockConnection, "select pg_try_advisory_lock(" + RECONCILE_LOCK_KEY + ")")) {
+                return 0;
+            }
+            try {
+                return reconcileLocked();
+            } finally {
+                advisoryLock(lockConnection, "select pg_advisory_unlock(" + RECONCILE_LOCK_KEY + ")");
+            }
+        } catch (SQLException e) {
+            // 接続が切れていればロックもデータベース側で外れている
+            logger.warn("Solr reconciliation lock failed: {}", e.toString());
+            return 0;
+        }
+    }
+
+    private long reconcileLocked() {
+        long repaired = 0;
+        Date updatedUntil = new Date(System.currentTimeMillis() - settleMs);
+        try {
+            repaired += run(UPDATED_CHECKPOINT, updatedUntil, this::readUpdated);
+            repaired += run(DELETED_CHECKPOINT, tombstoneRepository.settledUntil(settleMs), this::readDeleted);
+            pruneTombstones();
+        } catch (RuntimeException e) {
+            logger.warn("Solr reconciliation stopped; will resume from the last watermark: {}", e.toString());
+        }
+        if (repaired > 0) {
+            logger.info("Solr reconciliation queued {} repairs for changes up to {}", repaired, updatedUntil.toInstant());
+        }
+        return repaired;
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    // ウォーターマークから until までを batch-size 件ずつ見る
+    // 1バッチごとに、読むトランザクション → Solr に問い合わせ（トランザクションの外） → 積んで位置を保存するトランザクション
+    // （Solr の応答を待つ間、プライマリの接続とトランザクションを持ち続けないように）
+    private long run(String checkpointName, Date until, BatchStep step) {
+        Date afterAt = null;
+        long afterId = 0;
+        long repaired = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Date fromAt = afterAt;
+            long fromId = afterId;
+            Batch read = transaction.execute(tx -> {
+                // 同じ時刻の行が途中で切れていても取りこぼさないよう、保存した時刻ちょうどのものから読み直す
+                Date startAt = fromAt != null ? fromAt : new Date(checkpointRepository.findById(checkpointName)
+                        .map(JobCheckpoint::getPosition).orElse(until.getTime() - initialLookback.toMillis()));
+                return step.read(startAt, fromAt != null ? fromId : 0, until);
+            });
+            List<SolrOutboxEntry> outbox = read.size() == 0 ? List.of() : read.repairs().apply(getIndexed(read.ids()));
+            transaction.executeWithoutResult(tx -> {
+                record(read.source(), read.ids().size(), outbox);
+                JobCheckpoint checkpoint = checkpointRepository.findById(checkpointName)
+                        .orElseGet(() -> new JobCheckpoint(checkpointName, until.getTime()));
+                checkpoint.setPosition(read.size() < batchSize ? until.getTime() : read.lastAt().getTime());
+                checkpointRepository.save(checkpoint);
+            });
+            repaired += outbox.size();
+            if (read.size() < batchSize) {
+                break;
+            }
+            afterAt = read.lastAt();
+            afterId = read.lastId();
+        }
+        return repaired;
+    }
+
+    private Batch readUpdated(Date afterAt, long afterId, Date until) {
+        List<Todo> rows = todoRepository.findUpdatedAfter(afterAt, afterId, until, batchSize);
+        if (rows.isEmpty()) {
+            return Batch.empty("updated");
+        }
+        Todo last = rows.get(rows.size() - 1);
+        return new Batch("updated", rows.stream().map(todo -> String.valueOf(todo.getId())).toList(), indexed -> {
+            List<SolrOutboxEntry> outbox = new ArrayList<>();
+            for (Todo todo : rows) {
+                if (!matches(todo, indexed.get(String.valueOf(todo.getId())))) {
+                    outbox.add(new SolrOutboxEntry(todo.getId(), SolrOutboxEntry.Operation.INDEX));
+                }
+            }
+            return outbox;
+        }, last.getUpdatedAt(), last.getId(), rows.size());
+    }
+
+    private Batch readDeleted(Date afterAt, long afterId, Date until) {
+        List<TodoTombstoneRepository.Tombstone> tombstones = tombstoneRepository.findDeletedAfter(afterAt, afterId, until, batchSize);
+        if (tombstones.isEmpty()) {
+            return Batch.empty("deleted");
+        }
+        Set<Long> ids = tombstones.stream().map(TodoTombstoneRepository.Tombstone::todoId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Set<Long> archived = archiveRepository.findAllById(ids).stream().map(Todo::getId).collect(Collectors.toSet());
+        TodoTombstoneRepository.Tombstone last = tombstones.get(tombstones.size() - 1);
+        return new Batch("deleted", ids.stream().map(String::valueOf).toList(), indexed -> {
+            List<SolrOutboxEntry> outbox = new ArrayList<>();
+            for (Long id : ids) {
+                SolrTodoItem item = indexed.get(String.valueOf(id));
+                if (archived.contains(id)) {
+                    if (item == null || !item.isArchived()) {
+                        outbox.add(new SolrOutboxEntry(id, SolrOutboxEntry.Operation.ARCHIVE));
+                    }
+                } else if (item != null) {
+                    outbox.add(new SolrOutboxEntry(id, SolrOutboxEntry.Operation.DELETE));
+                }
+            }
+            return outbox;
+        }, last.deletedAt(), last.todoId(), tombstones.size());
+    }
+
+    // 削除の位置より前で、保存期間を過ぎたものだけ消す
+    private void pruneTombstones() {
+        transaction.executeWithoutResult(tx -> {
+            long watermark = checkpointRepository.findById(DELETED_CHECKPOINT).map(JobCheckpoint::getPosition).orElse(0L);
+            long before = Math.min(watermark, System.currentTimeMillis() - tombstoneRetention.toMillis());
+            int pruned = tombstoneRepository.deleteBefore(new Date(before));
+            if (pruned > 0) {
+                logger.debug("Pruned {} todo tombstones before {}", pruned, new Date(before).toInstant());
+            }
+        });
+    }
+
+    private Map<String, SolrTodoItem> getIndexed(Collection<String> ids) {
+        try {
+            return solrTodoService.getTodoItems(ids);
+        } catch (IOException | SolrServerException e) {
+            throw new IllegalStateException("Solr real-time get failed", e);
+        }
+    }
+
+    private void record(String source, int checked, List<SolrOutboxEntry> outbox) {
+        Counter.builder("solr.reconcile.checked")
+                .description("SolrReconciler が Solr と比べた件数（source: updated / deleted）")
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment(checked);
+        for (SolrOutboxEntry entry : outbox) {
+            Counter.builder("solr.reconcile.repaired")
+                    .description("Solr とずれていてアウトボックスに積んだ件数（operation: INDEX / ARCHIVE / DELETE）")
+                    .tag("operation", entry.getOperation().name())
+                    .register(meterRegistry)
+                    .increment();
+        }
+        outboxRepository.saveAll(outbox);
+    }
+
+    // Solr に送った内容のままか（Solr は空文字のフィールドを持たないことがあるので、空文字と null は同じとみなす）
+    private static boolean matches(Todo todo, SolrTodoItem indexed) {
+        return indexed != null
+                && !indexed.isArchived()
+                && sameText(todo.getTitle(), indexed.getTitle())
+                && sameText(todo.getDescription(), indexed.getDescription())
+                && todo.isCompleted() == indexed.isCompleted()
+                && sameTime(todo.getUpdatedAt(), indexed.getUpdatedAt());
+    }
+
+    private static boolean sameText(String a, String b) {
+        return Objects.equals(a == null || a.isEmpty() ? null : a, b == null || b.isEmpty() ? null : b);
+    }
+
+    private static boolean sameTime(Date a, Date b) {
+        return a == null ? b == null : b != null && a.getTime() == b.getTime();
+    }
+
+    // 位置から1バッチ分を読む（トランザクションの中）
+    @FunctionalInterface
+    private interface BatchStep {
+        Batch read(Date afterAt, long afterId, Date until);
+    }
+
+    // 読んだ1バッチ（ids: Solr で引くID、repairs: Solr の内容から積むものを決める、lastAt / lastId: 最後に見た行の位置）
+    private record Batch(String source, List<String> ids, Function<Map<String, SolrTodoItem>, List<SolrOutboxEntry>> repairs,
+                         Date lastAt, long lastId, int size) {
+
+        static Batch empty(String source) {
+            return new Batch(source, List.of(), indexed -> List.of(), null, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.entity.JobCheckpoint;
+import com.example.todoapp.entity.SolrOutboxEntry;
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.InvalidRequestException;
+import com.example.todoapp.model.ReindexStatus;
+import com.example.todoapp.repository.JobCheckpointRepository;
+import com.example.todoapp.repository.SolrOutboxRepository;
+import com.example.todoapp.repository.TodoRepository;
+import com.example.todoapp.repository.TodoTombstoneRepository;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+// PostgreSQL の全ToDoから Solr の todo_items コアを作り直すジョブ
+// ・IDの範囲（chunk-size 件ずつ）ごとに読み込み → 変換 → add を、parallelism 本のスレッドで並列に流す
+// ・先頭から途切れずに完了した位置をチェックポイントとして保存し、中断しても続きから再開できる
+// ・clean=true でも最初にコアを空にはしない（作り直している間も検索できるように）。
+//   全件入れ直し終わってから、開始時点の _version_ 以下のもの（todo テーブルに無くなったもの）を削除する
+// ・チャンクはプライマリから読む（レプリカの遅れた行で新しい文書を上書きしないように）
+// ・チャンクの add はアウトボックスの順番と関係なく届くので、リレーが先に送った新しい状態を古いチャンクが上書きしうる。
+//   全件流し終えたら、ジョブ開始（の requeue-margin-ms 前）以降に更新・削除されたToDoをアウトボックスに積み直し、
+//   今の状態をリレーに送り直してもらう（再開したジョブは最初のジョブの開始時刻から）
+// ・clean と開始時点の _version_ もチェックポイントに残し、再開したジョブも最初のジョブと同じ条件で削除する
+@Service
+public class SolrReindexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolrReindexService.class);
+    private static final String CHECKPOINT_NAME = "solr-reindex";
+    private static final String STARTED_CHECKPOINT_NAME = "solr-reindex-started"; // 最初から始めたジョブの開始時刻（ミリ秒）
+    private static final String CLEAN_CHECKPOINT_NAME = "solr-reindex-clean-version"; // clean のときの開始時点の _version_（clean でなければ -1）
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+
+    private final TodoRepository todoRepository;
+    private final TodoTombstoneRepository tombstoneRepository;
+    private final SolrOutboxRepository outboxRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final SolrTodoService solrTodoService;
+    private final TransactionTemplate primaryTransaction; // readOnly にしない（レプリカに振り分けない）
+    private final int defaultParallelism;
+    private final int maxParallelism;
+    private final int defaultChunkSize;
+    private final long requeueMarginMs;
+
+    // 実行中のジョブ（同時に1つだけ）
+    private volatile Job currentJob;
+
+    public SolrReindexService(TodoRepository todoRepository,
+                              TodoTombstoneRepository tombstoneRepository,
+                              SolrOutboxRepository outboxRepository,
+                              JobCheckpointRepository checkpointRepository,
+                              SolrTodoService solrTodoService,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${solr.reindex.parallelism:4}") int defaultParallelism,
+                              @Value("${solr.reindex.max-parallelism:16}") int maxParallelism,
+                              @Value("${solr.reindex.chunk-size:1000}") int defaultChunkSize,
+                              @Value("${solr.reindex.requeue-margin-ms:60000}") long requeueMarginMs) {
+        this.todoRepository = todoRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.outboxRepository = outboxRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.solrTodoService = solrTodoService;
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.defaultParallelism = defaultParallelism;
+        this.maxParallelism = maxParallelism;
+        this.defaultChunkSize = defaultChunkSize;
+        this.requeueMarginMs = requeueMarginMs;
+    }
+
+    // ジョブを開始する。resume=true ならチェックポイントの続きから、clean=true なら入れ直されなかったものを最後に削除する
+    // 再開したジョブの clean は最初のジョブのまま。clean でなかったジョブを clean=true で再開しようとしたら InvalidRequestException
+    // （開始時点の _version_ が無いので、消してよいものが分からない）
+    public synchronized ReindexStatus start(Integer parallelism, Integer chunkSize, boolean resume, boolean clean) {
+        Job running = currentJob;
+        if (running != null && running.isActive()) {
+            throw new IllegalStateException("Reindex is already running");
+        }
+
+        int threads = Math.max(1, Math.min(parallelism != null ? parallelism : defaultParallelism, maxParallelism));
+        int chunk = Math.max(1, chunkSize != null ? chunkSize : defaultChunkSize);
+
+        Long minId = todoRepository.findMinId();
+        Long maxId = todoRepository.findMaxId();
+        long fromId = minId != null ? minId : 0;
+        long toId = maxId != null ? maxId : -1;
+        long firstStartedAt = System.currentTimeMillis();
+        Long cleanVersion = null; // 再開したジョブの、最初のジョブの開始時点の _version_
+        if (resume) {
+            cleanVersion = checkpointRepository.findById(CLEAN_CHECKPOINT_NAME)
+                    .map(JobCheckpoint::getPosition).filter(version -> version >= 0).orElse(null);
+            if (clean && cleanVersion == null) {
+                throw new InvalidRequestException("The interrupted reindex was not a clean rebuild; start a new one with clean=true");
+            }
+            long checkpoint = checkpointRepository.findById(CHECKPOINT_NAME).map(JobCheckpoint::getPosition).orElse(fromId - 1);
+            fromId = Math.max(fromId, checkpoint + 1);
+            // 中断したジョブが書いたチャンクも古いかもしれないので、積み直しは最初のジョブの開始時刻から
+            firstStartedAt = checkpointRepository.findById(STARTED_CHECKPOINT_NAME)
+                    .map(JobCheckpoint::getPosition).filter(position -> position > 0).orElse(firstStartedAt);
+        }
+
+        Job job = new Job(threads, chunk, fromId, toId, resume ? cleanVersion != null : clean, resume, firstStartedAt, cleanVersion);
+        currentJob = job;
+        Thread.ofPlatform().name("solr-reindex").daemon().start(job::run);
+        return job.status();
+    }
+
+    // 実行中のジョブを止める（処理中のチャンクは最後まで送る）
+    public ReindexStatus stop() {
+        Job job = currentJob;
+        if (job != null) {
+            job.stopRequested = true;
+            // 終わった直後なら COMPLETED などのまま（STOPPING で止まったままにならないように）
+            job.state.compareAndSet("RUNNING", "STOPPING");
+        }
+        return status();
+    }
+
+    public ReindexStatus status() {
+        Job job = currentJob;
+        if (job == null) {
+            long checkpoint = checkpointRepository.findById(CHECKPOINT_NAME).map(JobCheckpoint::getPosition).orElse(0L);
+            return new ReindexStatus("IDLE", null, null, 0, 0, 0, 0, checkpoint, 0, 0, 0, null);
+        }
+        return job.status();
+    }
+
+    // IDの範囲1つ分を読み込んで Solr に送る（ワーカースレッドで実行）
+    private long indexChunk(long fromId, long toId) throws IOException, SolrServerException {
+        List<Todo> rows = primaryTransaction.execute(tx -> todoRepository.findByIdBetweenOrderById(fromId, toId));
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+        List<SolrInputDocument> docs = rows.stream()
+                .map(todo -> SolrTodoItemMapper.toSolrInputDocument(SolrTodoItemMapper.toSolrTodoItem(todo)))
+                .collect(Collectors.toList());
+        solrTodoService.addDocuments(docs);
+        return docs.size();
+    }
+
+    // since 以降に更新・削除されたToDoをアウトボックスに積む。リレーはその時点の状態（あれば本文、無ければ削除）を送る
+    private long requeueChangedSince(Date since) {
+        Long requeued = primaryTransaction.execute(tx -> {
+            Set<Long> ids = new LinkedHashSet<>(todoRepository.findIdsUpdatedSince(since));
+            ids.addAll(tombstoneRepository.findIdsDeletedSince(since));
+            outboxRepository.saveAll(ids.stream()
+                    .map(id -> new SolrOutboxEntry(id, SolrOutboxEntry.Operation.INDEX))
+                    .collect(Collectors.toList()));
+            return (long) ids.size();
+        });
+        return requeued != null ? requeued : 0;
+    }
+
+    private void saveCheckpoint(String name, long position) {
+        JobCheckpoint checkpoint = checkpointRepository.findById(name)
+                .orElseGet(() -> new JobCheckpoint(name, position));
+        checkpoint.setPosition(position);
+        checkpointRepository.save(checkpoint);
+    }
+
+    private final class Job {
+        private final int parallelism;
+        private final int chunkSize;
+        private final long fromId;
+        private final long toId;
+        private final boolean clean;
+        private final boolean resume;
+        private final long firstStartedAt; // 積み直しの起点（再開したジョブなら最初のジョブの開始時刻）
+        private final Long cleanVersion; // clean の削除の基準（再開したジョブなら最初のジョブの値。最初から始めるなら null）
+        private final Date startedAt = new Date();
+        private final AtomicLong indexedDocuments = new AtomicLong();
+        private final AtomicLong completedChunks = new AtomicLong();
+
+        private final AtomicReference<String> state = new AtomicReference<>("RUNNING");
+        private volatile boolean stopRequested;
+        private volatile long checkpointId;
+        private volatile Date finishedAt;
+        private volatile String error;
+
+        private Job(int parallelism, int chunkSize, long fromId, long toId, boolean clean, boolean resume, long firstStartedAt,
+                    Long cleanVersion) {
+            this.parallelism = parallelism;
+            this.chunkSize = chunkSize;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.clean = clean;
+            this.resume = resume;
+            this.firstStartedAt = firstStartedAt;
+            this.cleanVersion = cleanVersion;
+            this.checkpointId = fromId - 1;
+        }
+
+        private boolean isActive() {
+            String current = state.get();
+            return "RUNNING".equals(current) || "STOPPING".equals(current);
+        }
+
+        private void run() {
+            logger.info("Reindex started: ids {}..{}, parallelism={}, chunkSize={}", fromId, toId, parallelism, chunkSize);
+            ExecutorService workers = Executors.newFixedThreadPool(parallelism,
+                    Thread.ofPlatform().name("solr-reindex-worker-", 0).daemon().factory());
+            try {
+                saveCheckpoint(CHECKPOINT_NAME, checkpointId); // 最初からやり直す場合は前回の位置を捨てる
+                long startVersion;
+                if (resume) {
+                    startVersion = clean ? cleanVersion : -1;
+                } else {
+                    saveCheckpoint(STARTED_CHECKPOINT_NAME, firstStartedAt);
+                    startVersion = clean ? solrTodoService.latestVersion() : -1;
+                    saveCheckpoint(CLEAN_CHECKPOINT_NAME, startVersion);
+                }
+                boolean completed = runChunks(workers);
+                if (clean && completed) {
+                    solrTodoService.deleteDocumentsNotUpdatedSince(startVersion);
+                }
+                if (completed) {
+                    long requeued = requeueChangedSince(new Date(firstStartedAt - requeueMarginMs));
+                    logger.info("Reindex requeued {} todos changed while it was running", requeued);
+                }
+                solrTodoService.commit();
+                finishedAt = new Date();
+                state.set(completed ? "COMPLETED" : "STOPPED");
+                logger.info("Reindex {}: {} documents in {} chunks ({} docs/s)",
+                        state.get().toLowerCase(), indexedDocuments.get(), completedChunks.get(), String.format("%.1f", docsPerSecond()));
+            } catch (Exception e) {
+                logger.error("Reindex failed at checkpoint {}", checkpointId, e);
+                error = String.valueOf(e);
+                finishedAt = new Date();
+                state.set("FAILED");
+            } finally {
+                workers.shutdownNow();
+            }
+        }
+
+        // 同時に投入するチャンクは parallelism * 2 まで。終わった順に受け取り、チェックポイントを進める
+        // 最後のIDまで流し終えたら true（途中で止めたら false）
+        private boolean runChunks(ExecutorService workers) throws InterruptedException, ExecutionException {
+            CompletionService<long[]> completion = new ExecutorCompletionService<>(workers);
+            TreeMap<Long, Long> finishedRanges = new TreeMap<>(); // 開始ID -> 終了ID（チェックポイントより先に終わったもの）
+            long nextFrom = fromId;
+            int inFlight = 0;
+
+            while (true) {
+                while (!stopRequested && inFlight < parallelism * 2 && nextFrom <= toId) {
+                    long from = nextFrom;
+                    long to = Math.min(toId, from + chunkSize - 1);
+                    completion.submit(() -> new long[]{from, to, indexChunkWithRetry(from, to)});
+                    inFlight++;
+                    nextFrom = to + 1;
+                }
+                if (inFlight == 0) {
+                    return nextFrom > toId;
+                }
+
+                Future<long[]> done = completion.take();
+                inFlight--;
+                long[] result = done.get(); // 失敗したチャンクがあればここで例外になりジョブを止める
+                indexedDocuments.addAndGet(result[2]);
+                completedChunks.incrementAndGet();
+                finishedRanges.put(result[0], result[1]);
+
+                // 先頭から途切れずに終わった範囲までチェックポイントを進める
+                long advanced = checkpointId;
+                while (!finishedRanges.isEmpty() && finishedRanges.firstKey() == advanced + 1) {
+                    advanced = finishedRanges.pollFirstEntry().getValue();
+                }
+                if (advanced != checkpointId) {
+                    checkpointId = advanced;
+                    saveCheckpoint(CHECKPOINT_NAME, advanced);
+                }
+            }
+        }
+
+        private long indexChunkWithRetry(long from, long to) throws IOException, SolrServerException, InterruptedException {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return indexChunk(from, to);
+                } catch (IOException | SolrServerException | RuntimeException e) {
+                    if (attempt >= MAX_CHUNK_ATTEMPTS) {
+                        throw e;
+                    }
+                    logger.warn("Reindex chunk {}..{} failed (attempt {}), retrying", from, to, attempt, e);
+                    Thread.sleep(1000L * attempt);
+                }
+            }
+        }
+
+        private double docsPerSecond() {
+            long end = finishedAt != null ? finishedAt.getTime() : System.currentTimeMillis();
+            double seconds = Math.max(0.001, (end - startedAt.getTime()) / 1000.0);
+            return indexedDocuments.get() / seconds;
+        }
+
+        private ReindexStatus status() {
+            return new ReindexStatus(state.get(), startedAt, finishedAt, parallelism, chunkSize, fromId, toId,
+                    checkpointId, indexedDocuments.get(), completedChunks.get(), docsPerSecond(), error);
+        }
+    }
+}
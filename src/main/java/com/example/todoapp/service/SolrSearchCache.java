@@ -0,0 +1,178 @@
+package com.example.todoapp.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.GenericSolrRequest;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// Solrの検索結果のアプリ内キャッシュ（Caffeine）
+// ・キーは「正規化した検索語・ページ・条件」と索引の版（Solrの検索用の索引の version。/admin/luke で読む）
+//   版はコミット（commitWithin のソフトコミットを含む）で新しい索引が開かれたときだけ変わるので、
+//   登録・削除を送っただけではキャッシュは外れず、検索結果が変わりうるときだけ外れる（古い版のものは件数とTTLで捨てられる）
+// ・版は version-poll-ms ごとに読み直す。どのインスタンスが送った変更でも、反映されてから version-poll-ms 以内に外れる
+//   このインスタンスが commit したときはすぐ読み直す
+// ・同じキーの検索が同時に来たら、Solrへの問い合わせは1回だけにして結果を共有する。失敗した結果はキャッシュしない
+// ・版を読めない間（Solrが止まっているなど）は前の版のまま。TTL（solr.search.cache.spec）が結果の古さの上限になる
+@Component
+public class SolrSearchCache {
+
+    // Solr（Lucene）の検索式で区切りとして扱われる空白
+    private static final Pattern SEPARATORS = Pattern.compile("[ \\t\\n\\r\\u3000]+");
+
+    private static final Logger logger = LoggerFactory.getLogger(SolrSearchCache.class);
+
+    private final SolrClient solrClient;
+    private final AsyncCache<Key, Object> cache;
+    private final AtomicLong indexVersion = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    public SolrSearchCache(SolrClient solrClient, MeterRegistry meterRegistry,
+                           @Value("${solr.search.cache.spec:maximumSize=1000,expireAfterWrite=10s}") String spec) {
+        this.solrClient = solrClient;
+        this.cache = Caffeine.from(spec).buildAsync();
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.coalesced = counter(meterRegistry, "coalesced");
+        Gauge.builder("solr.search.cache.size", cache, c -> c.synchronous().estimatedSize())
+                .description("キャッシュしているSolrの検索結果の数（問い合わせ中のものを含む）")
+                .register(meterRegistry);
+        Gauge.builder("solr.search.cache.index-version", indexVersion, AtomicLong::get)
+                .description("キーに使っている索引の版（Solrで新しい検索用の索引が開かれると変わる）")
+                .register(meterRegistry);
+    }
+
+    // 同期の検索。キャッシュになければこのスレッドで問い合わせ、同じキーで待っている他の検索にも結果を渡す
+    public <T> T get(Object search, SolrMetrics.SolrCall<T> loader) throws IOException, SolrServerException {
+        CompletableFuture<T> mine = new CompletableFuture<>();
+        CompletableFuture<T> shared = lookup(search, mine);
+        if (shared == mine) {
+            try {
+                T result = loader.call();
+                mine.complete(result);
+                return result;
+            } catch (Throwable e) {
+                mine.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return shared.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof SolrServerException solr) {
+                throw solr;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    // 非同期の検索。返す future は呼び出しごとの写しなので、orTimeout などで打ち切っても他の検索には影響しない
+    public <T> CompletableFuture<T> getAsync(Object search, Supplier<CompletableFuture<T>> loader) {
+        CompletableFuture<T> mine = new CompletableFuture<>();
+        CompletableFuture<T> shared = lookup(search, mine);
+        if (shared == mine) {
+            CompletableFuture<T> call;
+            try {
+                call = loader.get();
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            call.whenComplete((result, error) -> {
+                if (error == null) {
+                    mine.complete(result);
+                } else {
+                    mine.completeExceptionally(error);
+                }
+            });
+        }
+        return shared.copy();
+    }
+
+    // 今開かれている検索用の索引の版を読み直す（/admin/luke?show=index。フィールドの統計は取らないので軽い）
+    @Scheduled(fixedDelayString = "${solr.search.cache.version-poll-ms:1000}")
+    public void refreshIndexVersion() {
+        ModifiableSolrParams params = new ModifiableSolrParams();
+        params.set("show", "index");
+        params.set("numTerms", 0);
+        try {
+            NamedList<Object> response = solrClient.request(new GenericSolrRequest(SolrRequest.METHOD.GET, "/admin/luke", params));
+            Object index = response.get("index");
+            Object version = index instanceof NamedList<?> info ? info.get("version") : null;
+            if (version instanceof Number number) {
+                indexVersion.set(number.longValue());
+            }
+        } catch (IOException | SolrServerException | RuntimeException e) {
+            logger.debug("Could not read the Solr index version, keeping {}: {}", indexVersion.get(), e.toString());
+        }
+    }
+
+    // 前後の空白を除き、続いた空白を1つにまとめる（検索の意味は変わらない）。空なら null（全件）
+    public static String normalizeQuery(String query) {
+        if (query == null) {
+            return null;
+        }
+        String normalized = SEPARATORS.matcher(query).replaceAll(" ").trim();
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    // キャッシュにあればそれを、なければ mine を登録して返す
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> lookup(Object search, CompletableFuture<T> mine) {
+        ConcurrentMap<Key, CompletableFuture<Object>> map = cache.asMap();
+        Key key = new Key(indexVersion.get(), search);
+        while (true) {
+            CompletableFuture<Object> existing = map.putIfAbsent(key, (CompletableFuture<Object>) mine);
+            if (existing == null) {
+                misses.increment();
+                return mine;
+            }
+            if (!existing.isDone()) {
+                coalesced.increment();
+                return (CompletableFuture<T>) existing;
+            }
+            if (!existing.isCompletedExceptionally()) {
+                hits.increment();
+                return (CompletableFuture<T>) existing;
+            }
+            map.remove(key, existing); // Caffeine が消す前の失敗した結果は使わない
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("solr.search.cache")
+                .description("Solrの検索結果キャッシュ（result: hit / miss / coalesced = 同じ検索の問い合わせ中の結果を待った）")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Key(long indexVersion, Object search) {
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.SolrTodoItem;
+import com.example.todoapp.model.SolrTodoSummary;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+// Todo / SolrTodoItem / Solrのドキュメントの相互変換
+// 検索結果1件ごとに呼ばれるホットパスなので、ベンチマーク（benchmarks モジュール）から直接呼べるように分けている
+public final class SolrTodoItemMapper {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolrTodoItemMapper.class);
+
+    // 検索時に fl で指定するフィールド（_version_ などの不要なフィールドは受け取らない）
+    public static final String ITEM_FIELDS = "id,title,description,completed,createdAt,updatedAt,title_strnew,archived_b";
+    // アーカイブ済みのフィールド（スキーマの *_b）。通常のToDoには付けないので、既存のドキュメントはそのままでよい
+    public static final String ARCHIVED_FIELD = "archived_b";
+    public static final String SUMMARY_FIELDS = "id,title,completed";
+
+    private SolrTodoItemMapper() {
+    }
+
+    // TodoエンティティをSolrTodoItemモデルに変換する
+    public static SolrTodoItem toSolrTodoItem(Todo todo) {
+        SolrTodoItem solrItem = new SolrTodoItem(
+                String.valueOf(todo.getId()),
+                todo.getTitle(),
+                todo.getDescription(),
+                todo.isCompleted(),
+                todo.getCreatedAt(),
+                todo.getUpdatedAt(),
+                todo.getTitle()
+        );
+        // Solrの単一値フィールド（title_strnew）にタイトルをコピー
+        solrItem.setTitleExact(todo.getTitle());
+        return solrItem;
+    }
+
+    // SolrTodoItem を Solr に送るドキュメントに変換する
+    public static SolrInputDocument toSolrInputDocument(SolrTodoItem todoItem) {
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.addField("id", todoItem.getId()); // SolrのIDはString型なので、Stringとして追加
+        doc.addField("title", todoItem.getTitle());
+        doc.addField("description", todoItem.getDescription());
+        doc.addField("completed", todoItem.isCompleted()); // boolean型
+        doc.addField("createdAt", todoItem.getCreatedAt());
+        doc.addField("updatedAt", todoItem.getUpdatedAt());
+
+        if (todoItem.getTitleExact() != null) {
+            doc.addField("title_strnew", todoItem.getTitleExact());
+        } else {
+            doc.addField("title_strnew", todoItem.getTitle());
+        }
+        if (todoItem.isArchived()) {
+            doc.addField(ARCHIVED_FIELD, true);
+        }
+        return doc;
+    }
+
+    // SolrのドキュメントをSolrTodoItemに変換する（ITEM_FIELDS を fl に指定して取得したもの）
+    // javabin では単一値フィールドは String / Boolean / Date のまま届くので、その型ならそのまま使う
+    public static SolrTodoItem toSolrTodoItem(SolrDocument doc) {
+        SolrTodoItem item = new SolrTodoItem(
+                stringField(doc, "id"),
+                stringField(doc, "title"),
+                stringField(doc, "description"),
+                booleanField(doc, "completed"),
+                dateField(doc, "createdAt"),
+                dateField(doc, "updatedAt"),
+                stringField(doc, "title_strnew") // Solrからとったtitle_strnew の値
+        );
+        item.setArchived(booleanField(doc, ARCHIVED_FIELD));
+        return item;
+    }
+
+    // 一覧表示用の軽い形に変換する（SUMMARY_FIELDS を fl に指定して取得したもの）
+    public static SolrTodoSummary toSolrTodoSummary(SolrDocument doc) {
+        return new SolrTodoSummary(stringField(doc, "id"), stringField(doc, "title"), booleanField(doc, "completed"));
+    }
+
+    // ヘルパーメソッド群
+    // getFirstValue は複数値（List）なら先頭を返すので、ここでは List かどうかを気にしなくてよい
+    private static String stringField(SolrDocument doc, String name) {
+        Object value = doc.getFirstValue(name);
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        return value.toString();
+    }
+
+    private static boolean booleanField(SolrDocument doc, String name) {
+        Object value = doc.getFirstValue(name);
+        if (value instanceof Boolean b) {
+            return b;
+        }
+        return value != null && Boolean.parseBoolean(value.toString());
+    }
+
+    private static Date dateField(SolrDocument doc, String name) {
+        Object value = doc.getFirstValue(name);
+        if (value == null || value instanceof Date) {
+            return (Date) value;
+        }
+        // JSONレスポンスなどで文字列のまま届いた場合
+        if (value instanceof String s) {
+            try {
+                return Date.from(Instant.parse(s));
+            } catch (DateTimeParseException e) {
+                logger.error("Failed to parse date string for {}: {}", name, s, e);
+                return null;
+            }
+        }
+        logger.warn("Unexpected type for date value: {}", value.getClass().getName());
+        return null; // 予期せぬ型の場合
+    }
+}
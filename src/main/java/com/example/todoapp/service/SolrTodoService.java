@@ -1,16 +1,41 @@
 package com.example.todoapp.service;
 
+import com.example.todoapp.model.CursorPage;
+import com.example.todoapp.model.InvalidRequestException;
 import com.example.todoapp.model.SolrTodoItem;
+import com.example.todoapp.model.SolrTodoSummary;
+import com.example.todoapp.model.TodoSearchRequest;
+import com.example.todoapp.model.TodoSearchResult;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.StreamingResponseCallback;
+import org.apache.solr.client.solrj.impl.Http2SolrClient;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.response.FacetField;
 import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.Date;
 import org.apache.solr.common.SolrDocument;
 import org.slf4j.Logger;
@@ -23,160 +48,374 @@ public class SolrTodoService {
 
     private static final Logger logger = LoggerFactory.getLogger(SolrTodoService.class);
 
+    private static final int EXPORT_PAGE_SIZE = 1000; // エクスポート時に1回で受け取る件数
+    // アーカイブ済みを除くフィルター（どの検索でも同じ文字列なので filterCache に1つだけ載る）
+    private static final String EXCLUDE_ARCHIVED_FQ = "-" + SolrTodoItemMapper.ARCHIVED_FIELD + ":true";
+    private static final String VERSION_FIELD = "_version_";
+
+    // 日付ファセットの対象フィールドと区間
+    private static final List<String> DATE_FACET_FIELDS = List.of("createdAt", "updatedAt");
+    private static final Map<String, String> DATE_FACET_BUCKETS = new LinkedHashMap<>();
+    static {
+        DATE_FACET_BUCKETS.put("today", "[NOW/DAY TO *]");
+        DATE_FACET_BUCKETS.put("last7days", "[NOW/DAY-7DAYS TO *]");
+        DATE_FACET_BUCKETS.put("last30days", "[NOW/DAY-30DAYS TO *]");
+        DATE_FACET_BUCKETS.put("older", "[* TO NOW/DAY-30DAYS}");
+    }
+
     private final SolrClient solrClient;
+    private final SolrIndexingPipeline indexingPipeline; // 登録・削除はキュー経由でまとめて送る
+    private final SolrSearchCache searchCache; // 検索結果のキャッシュ（同じ検索の同時実行もまとめる）
+    private final ExecutorService asyncExecutor = Executors.newVirtualThreadPerTaskExecutor(); // 非同期検索のフォールバック用
     // private static final String COLLECTION_NAME = "todo_items";
 
-    public SolrTodoService(SolrClient solrClient) {
+    private final SolrMetrics solrMetrics; // リクエスト時間の計測
+    private final boolean logDocuments; // true のときだけドキュメントやクエリを INFO で出す（通常は DEBUG）
+
+    public SolrTodoService(SolrClient solrClient, SolrIndexingPipeline indexingPipeline, SolrSearchCache searchCache,
+                           SolrMetrics solrMetrics, @Value("${solr.log.documents:false}") boolean logDocuments) {
         this.solrClient = solrClient;
+        this.indexingPipeline = indexingPipeline;
+        this.searchCache = searchCache;
+        this.solrMetrics = solrMetrics;
+        this.logDocuments = logDocuments;
     }
 
-    public void indexTodoItem(SolrTodoItem todoItem) throws IOException, SolrServerException {
-        SolrInputDocument doc = new SolrInputDocument();
+    // 終了時に実行中の非同期検索を打ち切る（待っているリクエストには失敗が返る）
+    @PreDestroy
+    public void shutdown() {
+        asyncExecutor.shutdownNow();
+    }
 
+    // 登録はキューに積むだけ。実際の add は SolrIndexingPipeline がまとめて行い、commitWithin で反映される
+    public CompletableFuture<Void> indexTodoItem(SolrTodoItem todoItem) throws IOException, SolrServerException {
         // IDがnullでないことを確認してから追加
-        if (todoItem.getId() != null) {
-            doc.addField("id", todoItem.getId()); // SolrのIDはString型なので、Stringとして追加
-        } else {
+        if (todoItem.getId() == null) {
             logger.warn("Attempted to index TodoItem with null ID. Skipping document: {}", todoItem.getTitle());
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
-        doc.addField("title", todoItem.getTitle());
-        doc.addField("description", todoItem.getDescription());
-        doc.addField("completed", todoItem.isCompleted()); // boolean型
-        doc.addField("createdAt", todoItem.getCreatedAt());
-        doc.addField("updatedAt", todoItem.getUpdatedAt());
+        SolrInputDocument doc = SolrTodoItemMapper.toSolrInputDocument(todoItem);
+        logHotPath("Queueing document for Solr indexing: {}", doc);
+        return indexingPipeline.enqueueAdd(doc);
+    }
 
+    public CompletableFuture<Void> deleteTodoItem(String id) throws IOException, SolrServerException {
+        logHotPath("Queueing document deletion for Solr: ID {}", id);
+        return indexingPipeline.enqueueDelete(id);
+    }
 
-        if (todoItem.getTitleExact() != null) {
-            doc.addField("title_strnew", todoItem.getTitleExact());
-        } else {
-            doc.addField("title_strnew", todoItem.getTitle());
-        }
+    // まとめて登録する（再インデックス用。キューを通さずこのスレッドで送る）
+    public void addDocuments(Collection<SolrInputDocument> docs) throws IOException, SolrServerException {
+        solrMetrics.record("add", () -> solrClient.add(docs));
+    }
+
+    // 今のインデックスで一番新しい _version_（空なら 0）。Solr が add のたびに大きくしていく値なので、
+    // 再インデックスの開始時に控えておけば、それ以下のものは再インデックスで入れ直されなかったと分かる
+    public long latestVersion() throws IOException, SolrServerException {
+        SolrQuery query = new SolrQuery("*:*");
+        query.setRows(1);
+        query.setFields(VERSION_FIELD);
+        query.setSort(VERSION_FIELD, SolrQuery.ORDER.desc);
+        SolrDocumentList results = solrMetrics.record("query", () -> solrClient.query(query)).getResults();
+        return results.isEmpty() ? 0 : ((Number) results.get(0).getFieldValue(VERSION_FIELD)).longValue();
+    }
+
+    // _version_ が version 以下のもの（再インデックスで入れ直されなかった、todo テーブルに無いもの）を削除する
+    // 再インデックスは todo テーブルから作り直すので、todo_archive にあるもの（アーカイブ済み）は残しておく
+    public void deleteDocumentsNotUpdatedSince(long version) throws IOException, SolrServerException {
+        solrMetrics.record("delete", () -> solrClient.deleteByQuery(
+                VERSION_FIELD + ":[* TO " + version + "] " + EXCLUDE_ARCHIVED_FQ));
+    }
 
-        logger.info("Indexing document to Solr: {}", doc);
-        solrClient.add(doc);
-        solrClient.commit();
-        logger.info("Document indexed and committed successfully: ID {}", todoItem.getId());
+    public void commit() throws IOException, SolrServerException {
+        solrMetrics.record("commit", () -> solrClient.commit());
+        searchCache.refreshIndexVersion(); // 次の問い合わせを待たずに、コミット後の索引の結果を返すように
     }
 
-    public void deleteTodoItem(String id) throws IOException, SolrServerException {
-        logger.info("Deleting document from Solr: ID {}", id);
-        solrClient.deleteById(id);
-        solrClient.commit();
-        logger.info("Document deleted and committed successfully: ID {}", id);
+    // IDを指定して取得する（リアルタイム取得 /get。コミット前の変更も見える）。Solrに無いIDは結果に含まれない
+    public Map<String, SolrTodoItem> getTodoItems(Collection<String> ids) throws IOException, SolrServerException {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        ModifiableSolrParams params = new ModifiableSolrParams();
+        params.set(CommonParams.FL, SolrTodoItemMapper.ITEM_FIELDS);
+        SolrDocumentList docs = solrMetrics.record("get", () -> solrClient.getById(ids, params));
+        Map<String, SolrTodoItem> items = new LinkedHashMap<>(docs.size() * 2);
+        for (SolrDocument doc : docs) {
+            SolrTodoItem item = SolrTodoItemMapper.toSolrTodoItem(doc);
+            items.put(item.getId(), item);
+        }
+        return items;
     }
 
     //　検索
     public List<SolrTodoItem> searchTodoItems(String query, int start, int rows) throws IOException, SolrServerException {
-        SolrQuery solrQuery = new SolrQuery();
+        return searchTodoItems(query, start, rows, false);
+    }
 
+    public List<SolrTodoItem> searchTodoItems(String query, int start, int rows, boolean includeArchived)
+            throws IOException, SolrServerException {
+        String q = SolrSearchCache.normalizeQuery(query);
+        return searchCache.get(new OffsetSearch(q, start, rows, includeArchived), () -> {
+            SolrQuery solrQuery = buildQuery(q, SolrTodoItemMapper.ITEM_FIELDS);
+            excludeArchivedUnless(solrQuery, includeArchived);
+            solrQuery.setStart(start);
+            solrQuery.setRows(rows);
 
-        if (query != null && !query.trim().isEmpty()) {
-            solrQuery.setQuery(query); // クエリが空でない場合はそのまま設定
-            solrQuery.set("defType", "edismax"); // edismaxクエリタイプを使用
-            solrQuery.set("q.op", "AND"); // AND条件で検索
-            solrQuery.set("qf", "title_strnew description"); // title_strnew と description の両方で検索
-        } else {
-            solrQuery.setQuery("*:*"); // クエリが空の場合は全件検索
-        }
+            logHotPath("SolrClient query SolrQuery object: {}", solrQuery);
 
-        solrQuery.setStart(start);
-        solrQuery.setRows(rows);
+            QueryResponse response = solrMetrics.record("query", () -> solrClient.query(solrQuery));
+            logHotPath("Solr query returned {} hits.", response.getResults().getNumFound());
+
+            return mapResults(response.getResults(), SolrTodoItemMapper::toSolrTodoItem);
+        });
+    }
 
-        logger.info("SolrClient query SolrQuery object: {}", solrQuery.toString());
+    // 非同期検索（cursorMark 方式）。Solrの応答を待つ間スレッドを占有しない
+    // Http2SolrClient の requestAsync を使い、それ以外のクライアントなら仮想スレッドで同期APIを呼ぶ
+    public CompletableFuture<CursorPage<SolrTodoItem>> searchTodoItemsPageAsync(String query, String cursorMark, int rows) {
+        return searchTodoItemsPageAsync(query, cursorMark, rows, false);
+    }
 
-        QueryResponse response = solrClient.query(solrQuery);
-        logger.info("Solr query returned {} hits.", response.getResults().getNumFound());
+    public CompletableFuture<CursorPage<SolrTodoItem>> searchTodoItemsPageAsync(String query, String cursorMark, int rows,
+                                                                                boolean includeArchived) {
+        String q = SolrSearchCache.normalizeQuery(query);
+        return searchCache.getAsync(new CursorSearch(q, cursorMark, rows, includeArchived), () -> {
+            if (!(solrClient instanceof Http2SolrClient http2Client)) {
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return queryPage(q, cursorMark, rows, includeArchived);
+                    } catch (IOException | SolrServerException e) {
+                        throw new CompletionException(e);
+                    }
+                }, asyncExecutor);
+            }
 
-        return response.getResults().stream()
-                .map(doc -> {
-                    String id = getStringValue(doc.getFieldValue("id"));
-                    String title = getStringValue(doc.getFieldValue("title"));
-                    String description = getStringValue(doc.getFieldValue("description"));
+            SolrQuery solrQuery = buildCursorQuery(q, cursorMark, rows, includeArchived);
+            logHotPath("SolrClient async query SolrQuery object: {}", solrQuery);
+            return solrMetrics.recordAsync("query", http2Client.requestAsync(new QueryRequest(solrQuery), null))
+                    .thenApply(namedList -> toCursorPage(new QueryResponse(namedList, solrClient), cursorMark));
+        });
+    }
 
-                    //受け取り
-                    Boolean completedFromSolr = getBooleanValue(doc.getFieldValue("completed"));
+    // 検索（cursorMark 方式）。深いページでも start/rows のように遅くならない
+    // cursorMark には最初は "*"、以降は前回返された nextCursor を渡す
+    public CursorPage<SolrTodoItem> searchTodoItemsPage(String query, String cursorMark, int rows) throws IOException, SolrServerException {
+        return searchTodoItemsPage(query, cursorMark, rows, false);
+    }
 
-                    Date createdAt = getDateValue(doc.getFieldValue("createdAt"));
-                    Date updatedAt = getDateValue(doc.getFieldValue("updatedAt"));
+    public CursorPage<SolrTodoItem> searchTodoItemsPage(String query, String cursorMark, int rows, boolean includeArchived)
+            throws IOException, SolrServerException {
+        String q = SolrSearchCache.normalizeQuery(query);
+        return searchCache.get(new CursorSearch(q, cursorMark, rows, includeArchived),
+                () -> queryPage(q, cursorMark, rows, includeArchived));
+    }
 
-                    // SolrTodoItemのコンストラクタに渡すための title_strnew の値を取得
-                    String titleExactFromSolr = getStringValue(doc.getFieldValue("title_strnew"));
+    private CursorPage<SolrTodoItem> queryPage(String query, String cursorMark, int rows, boolean includeArchived)
+            throws IOException, SolrServerException {
+        SolrQuery solrQuery = buildCursorQuery(query, cursorMark, rows, includeArchived);
 
-                    // SolrTodoItemの新しいコンストラクタを呼び出し
-                    SolrTodoItem item = new SolrTodoItem(
-                            id,
-                            title,
-                            description,
-                            completedFromSolr != null ? completedFromSolr : false, // ここでbooleanに変換
-                            createdAt,
-                            updatedAt,
-                            titleExactFromSolr // Solrからとったtitle_strnew の値
-                    );
+        logHotPath("SolrClient query SolrQuery object: {}", solrQuery);
 
-                    return item;
-                })
-                .collect(Collectors.toList());
+        return toCursorPage(solrMetrics.record("query", () -> solrClient.query(solrQuery)), cursorMark);
     }
 
-    // ヘルパーメソッド群
-    private String getStringValue(Object value) {
-        if (value == null) {
-            return null;
+    private SolrQuery buildCursorQuery(String query, String cursorMark, int rows, boolean includeArchived) {
+        SolrQuery solrQuery = buildQuery(query, SolrTodoItemMapper.ITEM_FIELDS);
+        excludeArchivedUnless(solrQuery, includeArchived);
+        solrQuery.setRows(rows);
+        // cursorMark には一意キーを含むソートが必要
+        solrQuery.setSort("createdAt", SolrQuery.ORDER.asc);
+        solrQuery.addSort("id", SolrQuery.ORDER.asc);
+        solrQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+        return solrQuery;
+    }
+
+    private CursorPage<SolrTodoItem> toCursorPage(QueryResponse response, String cursorMark) {
+        logHotPath("Solr query returned {} hits.", response.getResults().getNumFound());
+
+        List<SolrTodoItem> items = mapResults(response.getResults(), SolrTodoItemMapper::toSolrTodoItem);
+        // 次のカーソルが今回と同じなら最後まで読んだ
+        String next = response.getNextCursorMark();
+        return new CursorPage<>(items, next == null || next.equals(cursorMark) ? null : next);
+    }
+
+    // 条件付き検索。完了状態・日付の条件は fq（フィルタークエリ）にして Solr の filterCache に任せる
+    // fq にはタグを付け、ファセットではそのタグを除外して「他の条件で絞った場合の件数」を返す
+    public TodoSearchResult<SolrTodoItem> searchTodoItems(TodoSearchRequest request) throws IOException, SolrServerException {
+        return search(request, SolrTodoItemMapper.ITEM_FIELDS, SolrTodoItemMapper::toSolrTodoItem);
+    }
+
+    // 条件付き検索（軽い形）。Solrからは id / title / completed だけを受け取る
+    public TodoSearchResult<SolrTodoSummary> searchTodoSummaries(TodoSearchRequest request) throws IOException, SolrServerException {
+        return search(request, SolrTodoItemMapper.SUMMARY_FIELDS, SolrTodoItemMapper::toSolrTodoSummary);
+    }
+
+    private <T> TodoSearchResult<T> search(TodoSearchRequest request, String fields, Function<SolrDocument, T> mapper)
+            throws IOException, SolrServerException {
+        TodoSearchRequest normalized = request.withQ(SolrSearchCache.normalizeQuery(request.q()));
+        return searchCache.get(new FilteredSearch(fields, normalized), () -> querySearch(normalized, fields, mapper));
+    }
+
+    private <T> TodoSearchResult<T> querySearch(TodoSearchRequest request, String fields, Function<SolrDocument, T> mapper)
+            throws IOException, SolrServerException {
+        SolrQuery solrQuery = buildQuery(request.q(), fields);
+        excludeArchivedUnless(solrQuery, request.includeArchived());
+        solrQuery.setRows(request.rows());
+
+        if (request.completed() != null) {
+            solrQuery.addFilterQuery("{!tag=completed}completed:" + request.completed());
         }
-        if (value instanceof List) {
-            List<?> list = (List<?>) value;
-            return list.isEmpty() ? null : list.get(0).toString();
+        String createdRange = dateRange(request.createdFrom(), request.createdTo());
+        if (createdRange != null) {
+            solrQuery.addFilterQuery("{!tag=createdAt}createdAt:" + createdRange);
+        }
+        String updatedRange = dateRange(request.updatedFrom(), request.updatedTo());
+        if (updatedRange != null) {
+            solrQuery.addFilterQuery("{!tag=updatedAt}updatedAt:" + updatedRange);
         }
-        return value.toString();
-    }
 
-    private Boolean getBooleanValue(Object value) { // 戻り値は Boolean のまま
-        if (value == null) {
-            return null;
+        // ファセット：completed と、日付の区間ごとの件数（NOW/DAY で丸めてキャッシュが効くようにする）
+        solrQuery.setFacet(true);
+        solrQuery.setFacetMinCount(0);
+        solrQuery.addFacetField("{!ex=completed}completed");
+        for (String field : DATE_FACET_FIELDS) {
+            for (Map.Entry<String, String> bucket : DATE_FACET_BUCKETS.entrySet()) {
+                solrQuery.addFacetQuery("{!ex=" + field + " key=" + field + "." + bucket.getKey() + "}" + field + ":" + bucket.getValue());
+            }
+        }
+
+        // cursorMark で使うので、どのソートでも最後に id を付ける
+        switch (request.sort() == null ? "relevance" : request.sort()) {
+            case "created_asc" -> solrQuery.setSort("createdAt", SolrQuery.ORDER.asc);
+            case "created_desc" -> solrQuery.setSort("createdAt", SolrQuery.ORDER.desc);
+            case "updated_asc" -> solrQuery.setSort("updatedAt", SolrQuery.ORDER.asc);
+            case "updated_desc" -> solrQuery.setSort("updatedAt", SolrQuery.ORDER.desc);
+            case "relevance" -> solrQuery.setSort("score", SolrQuery.ORDER.desc);
+            default -> throw new InvalidRequestException("Unknown sort: " + request.sort());
+        }
+        solrQuery.addSort("id", SolrQuery.ORDER.asc);
+        String cursorMark = request.cursor() != null ? request.cursor() : CursorMarkParams.CURSOR_MARK_START;
+        solrQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+
+        logHotPath("SolrClient query SolrQuery object: {}", solrQuery);
+
+        QueryResponse response = solrMetrics.record("query", () -> solrClient.query(solrQuery));
+        logHotPath("Solr query returned {} hits.", response.getResults().getNumFound());
+
+        List<T> items = mapResults(response.getResults(), mapper);
+
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        FacetField completedFacet = response.getFacetField("completed");
+        if (completedFacet != null) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            completedFacet.getValues().forEach(c -> counts.put(c.getName(), c.getCount()));
+            facets.put("completed", counts);
         }
-        if (value instanceof List) {
-            List<?> list = (List<?>) value;
-            return list.isEmpty() ? null : Boolean.valueOf(list.get(0).toString());
+        Map<String, Integer> facetQueries = response.getFacetQuery();
+        if (facetQueries != null) {
+            facetQueries.forEach((key, count) -> {
+                int dot = key.indexOf('.');
+                facets.computeIfAbsent(key.substring(0, dot), k -> new LinkedHashMap<>())
+                        .put(key.substring(dot + 1), count.longValue());
+            });
         }
-        return Boolean.valueOf(value.toString());
+
+        String next = response.getNextCursorMark();
+        return new TodoSearchResult<>(items, response.getResults().getNumFound(),
+                next == null || next.equals(cursorMark) ? null : next, facets);
     }
 
-    private Date getDateValue(Object value) {
-        if (value == null) {
+    // [from TO to] の範囲指定を作る（両方 null なら null）
+    private String dateRange(Date from, Date to) {
+        if (from == null && to == null) {
             return null;
         }
-        if (value instanceof List) {
-            List<?> list = (List<?>) value;
+        return "[" + (from != null ? from.toInstant().toString() : "*")
+                + " TO " + (to != null ? to.toInstant().toString() : "*") + "]";
+    }
 
-            if (!list.isEmpty() && list.get(0) instanceof Date) {
-                return (Date) list.get(0);
-            } else if (!list.isEmpty() && list.get(0) instanceof String) {
+    // 全件を1件ずつ consumer に渡す（エクスポート用）
+    // cursorMark でページを進め、各ページも queryAndStreamResponse で1件ずつ受け取るのでリストを作らない
+    public long streamAllTodoItems(Consumer<SolrTodoItem> consumer) throws IOException, SolrServerException {
+        AtomicLong count = new AtomicLong();
+        StreamingResponseCallback callback = new StreamingResponseCallback() {
+            @Override
+            public void streamSolrDocument(SolrDocument doc) {
+                consumer.accept(SolrTodoItemMapper.toSolrTodoItem(doc));
+                count.incrementAndGet();
+            }
 
-                try {
-                    return Date.from(java.time.Instant.parse((String) list.get(0)));
-                } catch (Exception e) {
-                    logger.error("Failed to parse date string from list: {}", list.get(0), e);
-                    return null;
-                }
+            @Override
+            public void streamDocListInfo(long numFound, long start, Float maxScore) {
             }
-            return null;
-        }
-        // 単一値が文字列の場合
-        if (value instanceof String) {
-            try {
-                return Date.from(java.time.Instant.parse((String)value));
-            } catch (Exception e) {
-                logger.error("Failed to parse date string: {}", value, e);
-                return null;
+        };
+
+        String cursorMark = CursorMarkParams.CURSOR_MARK_START;
+        while (true) {
+            SolrQuery solrQuery = buildQuery(null, SolrTodoItemMapper.ITEM_FIELDS);
+            solrQuery.setRows(EXPORT_PAGE_SIZE);
+            solrQuery.setSort("id", SolrQuery.ORDER.asc);
+            solrQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+
+            QueryResponse response = solrMetrics.record("query", () -> solrClient.queryAndStreamResponse(solrQuery, callback));
+            String next = response.getNextCursorMark();
+            if (next == null || next.equals(cursorMark)) {
+                return count.get();
             }
+            cursorMark = next;
         }
-        // 単一値がDateオブジェクトの場合
-        if (value instanceof Date) {
-            return (Date) value;
+    }
+
+    // fields は fl に指定するフィールド（受け取るフィールドを絞ると、Solr側の読み出しも転送量も減る）
+    private SolrQuery buildQuery(String query, String fields) {
+        SolrQuery solrQuery = new SolrQuery();
+        solrQuery.set(CommonParams.FL, fields);
+
+        if (query != null && !query.trim().isEmpty()) {
+            solrQuery.setQuery(query); // クエリが空でない場合はそのまま設定
+            solrQuery.set("defType", "edismax"); // edismaxクエリタイプを使用
+            solrQuery.set("q.op", "AND"); // AND条件で検索
+            solrQuery.set("qf", "title_strnew description"); // title_strnew と description の両方で検索
+        } else {
+            solrQuery.setQuery("*:*"); // クエリが空の場合は全件検索
+        }
+        return solrQuery;
+    }
+
+    // アーカイブ済みは、指定されたときだけ検索対象にする
+    private static void excludeArchivedUnless(SolrQuery solrQuery, boolean includeArchived) {
+        if (!includeArchived) {
+            solrQuery.addFilterQuery(EXCLUDE_ARCHIVED_FQ);
+        }
+    }
+
+    // 件数ぶんの大きさで先にリストを作ってから詰める（stream + collect より割り当てが少ない）
+    private static <T> List<T> mapResults(SolrDocumentList results, Function<SolrDocument, T> mapper) {
+        List<T> items = new ArrayList<>(results.size());
+        for (SolrDocument doc : results) {
+            items.add(mapper.apply(doc));
+        }
+        return items;
+    }
+
+    // 検索結果キャッシュのキー（検索語は正規化済み）
+    private record OffsetSearch(String q, int start, int rows, boolean includeArchived) {
+    }
+
+    private record CursorSearch(String q, String cursorMark, int rows, boolean includeArchived) {
+    }
+
+    private record FilteredSearch(String fields, TodoSearchRequest request) {
+    }
+
+    // ドキュメント単位・リクエスト単位のログ（solr.log.documents=false なら DEBUG に落とす）
+    private void logHotPath(String format, Object... args) {
+        if (logDocuments) {
+            logger.info(format, args);
+        } else {
+            logger.debug(format, args);
         }
-        logger.warn("Unexpected type for date value: {}", value.getClass().getName());
-        return null; // 予期せぬ型の場合
     }
-}
\ No newline at end of file
+}
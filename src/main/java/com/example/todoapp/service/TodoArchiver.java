@@ -0,0 +1,135 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.entity.SolrOutboxEntry;
+import com.example.todoapp.model.TodoChangedEvent;
+import com.example.todoapp.repository.SolrOutboxRepository;
+import com.example.todoapp.repository.TodoArchiveRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// 完了してから max-age 以上たったToDoを todo から todo_archive（月ごとのパーティション）に移すバックグラウンド処理
+// ・batch-size 件ずつ別々のトランザクションで移し、間に batch-pause-ms 休む（1回の実行は max-batches-per-run まで）
+// ・1回分のトランザクションで、移す行のロック → その行の月のパーティションの作成 → 移動 をまとめて行う
+//   （ロックしていない行から月を決めると、実際に移した行の月のパーティションが無く default に入ってしまうことがある）
+// ・pg_try_advisory_xact_lock で、同時に移すのは1つのインスタンスだけにする（取れなければ今回はやめる）
+// ・default パーティションに行があれば（月のパーティションが作れなくなる）、隠さずにエラーにして止める
+// ・移したものはアウトボックス（ARCHIVE）経由で Solr の archived_b を立て、通常の検索から外す
+// ・TodoChangedEvent（ARCHIVED）を出すので、このインスタンスのキャッシュは削除と同じように捨てる
+//   変更通知は todo からの DELETE を V6 のトリガーが NOTIFY するので、TodoChangeListener 経由で削除として届く
+@Service
+public class TodoArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(TodoArchiver.class);
+    private static final long ARCHIVE_LOCK_KEY = 0x41_52_43_48_49_56L; // pg_advisory_xact_lock 用の固定キー
+
+    private final TodoArchiveRepository archiveRepository;
+    private final SolrOutboxRepository outboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+    private final Counter archived;
+    private final boolean enabled;
+    private final Duration maxAge;
+    private final int batchSize;
+    private final long batchPauseMs;
+    private final int maxBatchesPerRun;
+
+    public TodoArchiver(TodoArchiveRepository archiveRepository,
+                        SolrOutboxRepository outboxRepository,
+                        ApplicationEventPublisher eventPublisher,
+                        PlatformTransactionManager transactionManager,
+                        MeterRegistry meterRegistry,
+                        @Value("${todo.archive.enabled:true}") boolean enabled,
+                        @Value("${todo.archive.max-age:90d}") Duration maxAge,
+                        @Value("${todo.archive.batch-size:500}") int batchSize,
+                        @Value("${todo.archive.batch-pause-ms:200}") long batchPauseMs,
+                        @Value("${todo.archive.max-batches-per-run:200}") int maxBatchesPerRun) {
+        this.archiveRepository = archiveRepository;
+        this.outboxRepository = outboxRepository;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.archived = Counter.builder("todo.archive.archived")
+                .description("todo_archive に移したToDoの件数")
+                .register(meterRegistry);
+        this.enabled = enabled;
+        this.maxAge = maxAge;
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    @Scheduled(initialDelayString = "${todo.archive.interval-ms:3600000}", fixedDelayString = "${todo.archive.interval-ms:3600000}")
+    public void archiveScheduled() {
+        if (enabled) {
+            archiveCompleted();
+        }
+    }
+
+    // 1回分を実行して移した件数を返す
+    public long archiveCompleted() {
+        long stranded = archiveRepository.countInDefaultPartition();
+        if (stranded > 0) {
+            throw new IllegalStateException(stranded + " rows are in todo_archive_default; archiving stops until they are "
+                    + "moved out, because month partitions cannot be created while the default partition holds their rows");
+        }
+        Date cutoff = new Date(System.currentTimeMillis() - maxAge.toMillis());
+        long total = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<Long> ids = transaction.execute(tx -> moveBatch(cutoff));
+            if (ids == null) {
+                logger.debug("Another instance is archiving, skipping this run");
+                break;
+            }
+            if (ids.isEmpty()) {
+                break;
+            }
+            total += ids.size();
+            archived.increment(ids.size());
+            if (ids.size() < batchSize) {
+                break;
+            }
+            try {
+                Thread.sleep(batchPauseMs); // 他のリクエストに DB を譲る
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (total > 0) {
+            logger.info("Archived {} todos completed before {}", total, cutoff.toInstant());
+        }
+        return total;
+    }
+
+    // 他のインスタンスが移している最中なら null
+    private List<Long> moveBatch(Date cutoff) {
+        if (!outboxRepository.tryAdvisoryLock(ARCHIVE_LOCK_KEY)) {
+            return null;
+        }
+        TodoArchiveRepository.ArchiveBatch batch = archiveRepository.lockBatch(cutoff, batchSize);
+        if (batch.ids().isEmpty()) {
+            return List.of();
+        }
+        archiveRepository.createPartitions(batch.months());
+        List<Long> ids = archiveRepository.moveBatch(batch.ids());
+        List<SolrOutboxEntry> outbox = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            outbox.add(new SolrOutboxEntry(id, SolrOutboxEntry.Operation.ARCHIVE));
+            eventPublisher.publishEvent(TodoChangedEvent.archived(id));
+        }
+        outboxRepository.saveAll(outbox);
+        return ids;
+    }
+}
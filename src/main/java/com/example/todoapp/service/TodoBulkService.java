@@ -0,0 +1,138 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.entity.SolrOutboxEntry;
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.BulkTodoOperation;
+import com.example.todoapp.model.BulkTodoResult;
+import com.example.todoapp.model.TodoChangedEvent;
+import com.example.todoapp.repository.SolrOutboxRepository;
+import com.example.todoapp.repository.TodoRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// 複数のToDoをまとめて作成・更新・削除する
+// ・対象の行は1回の SELECT でまとめて読む
+// ・INSERT / UPDATE は hibernate.jdbc.batch_size 件ずつのJDBCバッチ、DELETE は1文
+// ・Solrへはアウトボックス経由なので、リレーがこの一括分を1回のバッチ更新で送る
+@Service
+public class TodoBulkService {
+
+    private final TodoRepository todoRepository;
+    private final SolrOutboxRepository outboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public TodoBulkService(TodoRepository todoRepository, SolrOutboxRepository outboxRepository,
+                           ApplicationEventPublisher eventPublisher) {
+        this.todoRepository = todoRepository;
+        this.outboxRepository = outboxRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public List<BulkTodoResult> apply(List<BulkTodoOperation> operations) {
+        // update / delete の対象をまとめて読み込む
+        Set<Long> referencedIds = operations.stream()
+                .filter(op -> op != null && op.id() != null && !"create".equals(op.op()))
+                .map(BulkTodoOperation::id)
+                .collect(Collectors.toSet());
+        Map<Long, Todo> existing = new HashMap<>(todoRepository.findAllById(referencedIds).stream()
+                .collect(Collectors.toMap(Todo::getId, Function.identity())));
+
+        BulkTodoResult[] results = new BulkTodoResult[operations.size()];
+        List<Todo> created = new ArrayList<>();
+        List<Integer> createdIndexes = new ArrayList<>();
+        Set<Long> updatedIds = new LinkedHashSet<>();
+        Set<Long> deletedIds = new LinkedHashSet<>();
+        Date now = new Date();
+
+        for (int i = 0; i < operations.size(); i++) {
+            BulkTodoOperation op = operations.get(i);
+            String type = op != null ? op.op() : null;
+            if (type == null) {
+                results[i] = BulkTodoResult.error(i, null, null, HttpStatus.BAD_REQUEST.value(), "op is required");
+                continue;
+            }
+            switch (type) {
+                case "create" -> {
+                    if (op.title() == null || op.title().isBlank()) {
+                        results[i] = BulkTodoResult.error(i, type, null, HttpStatus.BAD_REQUEST.value(), "title is required");
+                        continue;
+                    }
+                    Todo todo = new Todo(op.title(), op.description(), Boolean.TRUE.equals(op.completed()));
+                    todo.setCreatedAt(now);
+                    todo.setUpdatedAt(now);
+                    created.add(todo);
+                    createdIndexes.add(i);
+                }
+                case "update" -> {
+                    Todo todo = op.id() != null ? existing.get(op.id()) : null;
+                    if (todo == null) {
+                        results[i] = notFound(i, type, op.id());
+                        continue;
+                    }
+                    if (op.title() != null) {
+                        todo.setTitle(op.title());
+                    }
+                    if (op.description() != null) {
+                        todo.setDescription(op.description());
+                    }
+                    if (op.completed() != null) {
+                        todo.setCompleted(op.completed());
+                    }
+                    todo.setUpdatedAt(now);
+                    updatedIds.add(todo.getId());
+                    results[i] = BulkTodoResult.ok(i, type, todo.getId(), HttpStatus.OK.value());
+                }
+                case "delete" -> {
+                    if (op.id() == null || existing.remove(op.id()) == null) {
+                        results[i] = notFound(i, type, op.id());
+                        continue;
+                    }
+                    updatedIds.remove(op.id());
+                    deletedIds.add(op.id());
+                    results[i] = BulkTodoResult.ok(i, type, op.id(), HttpStatus.NO_CONTENT.value());
+                }
+                default -> results[i] = BulkTodoResult.error(i, type, op.id(), HttpStatus.BAD_REQUEST.value(), "unknown op: " + type);
+            }
+        }
+
+        // シーケンスでIDを採番するので、saveAll の INSERT はバッチで送られる
+        List<Todo> saved = todoRepository.saveAll(created);
+        for (int j = 0; j < saved.size(); j++) {
+            int index = createdIndexes.get(j);
+            results[index] = BulkTodoResult.ok(index, "create", saved.get(j).getId(), HttpStatus.CREATED.value());
+        }
+        // 更新分は変更検知でまとめて UPDATE される（DELETE の前に flush される）
+        if (!deletedIds.isEmpty()) {
+            todoRepository.deleteAllByIdInBatch(deletedIds);
+        }
+
+        List<SolrOutboxEntry> outbox = new ArrayList<>(saved.size() + updatedIds.size() + deletedIds.size());
+        saved.forEach(todo -> outbox.add(new SolrOutboxEntry(todo.getId(), SolrOutboxEntry.Operation.INDEX)));
+        updatedIds.forEach(id -> outbox.add(new SolrOutboxEntry(id, SolrOutboxEntry.Operation.INDEX)));
+        deletedIds.forEach(id -> outbox.add(new SolrOutboxEntry(id, SolrOutboxEntry.Operation.DELETE)));
+        outboxRepository.saveAll(outbox);
+
+        saved.forEach(todo -> eventPublisher.publishEvent(TodoChangedEvent.created(todo)));
+        updatedIds.forEach(id -> eventPublisher.publishEvent(TodoChangedEvent.updated(existing.get(id))));
+        deletedIds.forEach(id -> eventPublisher.publishEvent(TodoChangedEvent.deleted(id)));
+
+        return List.of(results);
+    }
+
+    private BulkTodoResult notFound(int index, String op, Long id) {
+        return BulkTodoResult.error(index, op, id, HttpStatus.NOT_FOUND.value(), "todo not found");
+    }
+}
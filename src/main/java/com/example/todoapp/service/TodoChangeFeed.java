@@ -0,0 +1,221 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.TodoChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// ToDoの変更を Server-Sent Events でブラウザに配信する
+// ・コミットされた変更だけを、番号（イベントID）付きで送る（TodoChangeListener がデータベースの通知から流すので、別のインスタンスでの変更も届く）
+// ・Last-Event-ID なしでつないできたら、最初に今のID（"ready"）を送る。その後すぐ切れても、再接続でそこからの続きが届く
+// ・直近 buffer-size 件を覚えておき、再接続時の Last-Event-ID からその続きを送り直す
+//   （覚えていない古いIDや再起動前・別のインスタンスのIDなら "reset" を送り、ブラウザに一覧を読み直してもらう）
+// ・接続ごとに queue-size 件までのキューと送信用の仮想スレッドを持つ。配信はキューに積むだけなので、
+//   遅いクライアントが他の接続や通知の受信を待たせない。キューがあふれた接続は切り、再接続で続き（または reset）を送る
+@Component
+public class TodoChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(TodoChangeFeed.class);
+
+    private final int bufferSize;
+    private final int queueSize;
+    private final long timeoutMs;
+    private final Counter dropped;
+    // イベントIDは「起動ごとの値:連番」。再起動をまたいだIDで続きを送らないようにする
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // 以下は this のロックを持って触る（キューに積むだけなので、ロックを持ったまま待つことはない）
+    private final ArrayDeque<FeedEvent> recent = new ArrayDeque<>();
+    private long sequence;
+
+    public TodoChangeFeed(MeterRegistry meterRegistry,
+                          @Value("${todo.feed.buffer-size:1000}") int bufferSize,
+                          @Value("${todo.feed.queue-size:256}") int queueSize,
+                          @Value("${todo.feed.timeout-ms:1800000}") long timeoutMs) {
+        this.bufferSize = bufferSize;
+        this.queueSize = queueSize;
+        this.timeoutMs = timeoutMs;
+        this.dropped = Counter.builder("todo.feed.dropped")
+                .description("送信待ちのキューがあふれて切った変更通知（SSE）の接続数")
+                .register(meterRegistry);
+        Gauge.builder("todo.feed.subscribers", subscribers, List::size)
+                .description("変更通知（SSE）の接続数")
+                .register(meterRegistry);
+    }
+
+    // 接続を受け付ける。lastEventId があればその後の変更から送る
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        synchronized (this) {
+            for (SseEmitter.SseEventBuilder event : replay(lastEventId)) {
+                subscriber.offer(event);
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.start();
+        return emitter;
+    }
+
+    public synchronized void publish(TodoChangedEvent event) {
+        FeedEvent feedEvent = new FeedEvent(++sequence, event);
+        recent.addLast(feedEvent);
+        if (recent.size() > bufferSize) {
+            recent.removeFirst();
+        }
+        SseEmitter.SseEventBuilder sse = toSse(feedEvent);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(sse);
+        }
+    }
+
+    // 送れなかった変更があるとき（データベースの通知が途切れたときなど）。覚えている分を捨て、全員に読み直してもらう
+    public synchronized void reset() {
+        recent.clear();
+        sequence++; // これより前のIDで再接続してきたら reset を送る
+        SseEmitter.SseEventBuilder sse = resetEvent();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(sse);
+        }
+    }
+
+    // プロキシにアイドル接続を切られないよう、また切れた接続を見つけるために定期的にコメント行を送る
+    @Scheduled(fixedDelayString = "${todo.feed.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(SseEmitter.event().comment("keep-alive"));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(Subscriber::close);
+    }
+
+    // 接続したときに送るもの（this のロックを持って呼ぶ）
+    private List<SseEmitter.SseEventBuilder> replay(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return List.of(SseEmitter.event().id(eventId(sequence)).name("ready").data(eventId(sequence)));
+        }
+        long last = parseSequence(lastEventId);
+        FeedEvent oldest = recent.peekFirst();
+        long oldestKept = oldest != null ? oldest.sequence() : sequence + 1;
+        // 続きを送れない、または続きがキューに収まらないときは、読み直してもらう
+        if (last < 0 || last > sequence || last + 1 < oldestKept || sequence - last > queueSize) {
+            return List.of(resetEvent());
+        }
+        List<SseEmitter.SseEventBuilder> events = new ArrayList<>();
+        for (FeedEvent feedEvent : recent) {
+            if (feedEvent.sequence() > last) {
+                events.add(toSse(feedEvent));
+            }
+        }
+        return events;
+    }
+
+    private SseEmitter.SseEventBuilder resetEvent() {
+        return SseEmitter.event().id(eventId(sequence)).name("reset").data("");
+    }
+
+    private SseEmitter.SseEventBuilder toSse(FeedEvent feedEvent) {
+        return SseEmitter.event()
+                .id(eventId(feedEvent.sequence()))
+                .name("todo")
+                .data(feedEvent.event(), MediaType.APPLICATION_JSON);
+    }
+
+    private String eventId(long seq) {
+        return epoch + ":" + seq;
+    }
+
+    // 別の起動のIDや壊れたIDは -1
+    private long parseSequence(String eventId) {
+        int colon = eventId.indexOf(':');
+        if (colon < 0 || !eventId.substring(0, colon).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private record FeedEvent(long sequence, TodoChangedEvent event) {
+    }
+
+    // 1つの接続。キューから取り出して送るのは、この接続の仮想スレッドだけ
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(queueSize);
+        private volatile boolean closed;
+        private volatile Thread sender;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void start() {
+            sender = Thread.ofVirtual().name("todo-change-feed-sender").start(this::run);
+            if (closed) {
+                sender.interrupt(); // start より前に閉じられていた
+            }
+        }
+
+        private void offer(SseEmitter.SseEventBuilder event) {
+            if (!closed && !queue.offer(event)) {
+                logger.debug("Dropping slow change feed subscriber ({} events queued)", queueSize);
+                dropped.increment();
+                close();
+            }
+        }
+
+        // 送信中のスレッドを待たずに閉じる（emitter を終わらせるのは送信スレッド）
+        private void close() {
+            closed = true;
+            subscribers.remove(this);
+            Thread thread = sender;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        private void run() {
+            try {
+                while (!closed) {
+                    emitter.send(queue.take());
+                }
+            } catch (InterruptedException e) {
+                // close された
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Dropping change feed subscriber: {}", e.toString());
+            } finally {
+                close();
+                try {
+                    emitter.complete();
+                } catch (IllegalStateException e) {
+                    // すでに終わっている
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.TodoChangedEvent;
+import com.example.todoapp.repository.TodoRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// データベースの todo_changes チャネル（V6 のトリガーが NOTIFY する）を LISTEN し、変更通知（TodoChangeFeed）と
+// タイトルの入力候補（TodoTitleSuggester）に流す
+// ・別のインスタンスでの書き込みも、このインスタンスにつないでいるブラウザに届く
+// ・接続を1本持ち続ける。切れたらつなぎ直し、その間の変更は送れないので、ブラウザに一覧を読み直してもらい（reset）、
+//   入力候補も読み込み直す
+// ・作成・更新は今の内容をプライマリから読んで送る（レプリカの遅れで古い内容を送らないように）
+// ・データバージョン（TodoDataVersion）も通知を受けるたびに増やす。LISTEN していない間はキャッシュ・ETag を使わせない
+@Component
+public class TodoChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TodoChangeListener.class);
+    private static final String CHANNEL = "todo_changes";
+
+    private final DataSource dataSource;
+    private final TodoRepository todoRepository;
+    private final TodoChangeFeed changeFeed;
+    private final TodoTitleSuggester titleSuggester;
+    private final TodoDataVersion dataVersion;
+    private final TransactionTemplate primaryTransaction; // readOnly にしない（レプリカに振り分けない）
+    private final int pollTimeoutMs;
+    private final long retryMs;
+
+    private volatile boolean running = true;
+    private Thread listener;
+
+    public TodoChangeListener(DataSource dataSource, TodoRepository todoRepository, TodoChangeFeed changeFeed,
+                              TodoTitleSuggester titleSuggester, TodoDataVersion dataVersion, PlatformTransactionManager transactionManager,
+                              @Value("${todo.feed.listen.poll-timeout-ms:10000}") int pollTimeoutMs,
+                              @Value("${todo.feed.listen.retry-ms:5000}") long retryMs) {
+        this.dataSource = dataSource;
+        this.todoRepository = todoRepository;
+        this.changeFeed = changeFeed;
+        this.titleSuggester = titleSuggester;
+        this.dataVersion = dataVersion;
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.retryMs = retryMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        listener = Thread.ofPlatform().name("todo-change-listener").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        listener.interrupt();
+    }
+
+    private void run() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("listen " + CHANNEL);
+                }
+                dataVersion.tracking(true);
+                if (reconnecting) {
+                    logger.info("Listening on {} again", CHANNEL);
+                    changeFeed.reset();
+                    titleSuggester.load();
+                }
+                reconnecting = true;
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null && notifications.length > 0) {
+                        dataVersion.changed();
+                        dispatch(notifications);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                dataVersion.tracking(false);
+                if (!running) {
+                    return;
+                }
+                logger.warn("Lost the {} listener connection, retrying in {}ms: {}", CHANNEL, retryMs, e.toString());
+                reconnecting = true;
+                try {
+                    Thread.sleep(retryMs);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // 通知の順に配信する。作成・更新はまとめて1回で読み、その間に削除されたものは送らない（削除の通知が続けて届く）
+    private void dispatch(PGNotification[] notifications) {
+        List<Change> changes = new ArrayList<>(notifications.length);
+        Set<Long> upsertedIds = new LinkedHashSet<>();
+        for (PGNotification notification : notifications) {
+            Change change = Change.parse(notification.getParameter());
+            if (change == null) {
+                logger.warn("Ignoring malformed {} notification: {}", CHANNEL, notification.getParameter());
+                continue;
+            }
+            changes.add(change);
+            if (!change.deleted()) {
+                upsertedIds.add(change.id());
+            }
+        }
+
+        Map<Long, Todo> todos = upsertedIds.isEmpty() ? Map.of() : primaryTransaction.execute(tx ->
+                todoRepository.findAllById(upsertedIds).stream().collect(Collectors.toMap(Todo::getId, Function.identity())));
+        for (Change change : changes) {
+            if (change.deleted()) {
+                deliver(TodoChangedEvent.deleted(change.id()));
+                continue;
+            }
+            Todo todo = todos.get(change.id());
+            if (todo != null) {
+                deliver(change.created() ? TodoChangedEvent.created(todo) : TodoChangedEvent.updated(todo));
+            }
+        }
+    }
+
+    private void deliver(TodoChangedEvent event) {
+        changeFeed.publish(event);
+        titleSuggester.onTodoChanged(event);
+    }
+
+    private record Change(String operation, long id) {
+
+        private static Change parse(String payload) {
+            int colon = payload.indexOf(':');
+            if (colon < 0) {
+                return null;
+            }
+            try {
+                return new Change(payload.substring(0, colon), Long.parseLong(payload.substring(colon + 1)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private boolean created() {
+            return "INSERT".equals(operation);
+        }
+
+        private boolean deleted() {
+            return "DELETE".equals(operation);
+        }
+    }
+}
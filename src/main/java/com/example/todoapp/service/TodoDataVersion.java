@@ -0,0 +1,103 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.TodoChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ToDoのデータバージョン（ETag やキャッシュのキーに使う）
+// データベースには問い合わせず、メモリ上の番号を書き込みに気付いたときに増やす（読み取りのたびにDBに行かない）
+// ・このインスタンスの書き込みはコミットの直後（TodoChangedEvent）に増やす
+// ・別のインスタンスの書き込み（一括処理・アーカイブ・手で流したSQLも）は TodoChangeListener が NOTIFY を受けたときに増やす
+// ・LISTEN の接続が無い間は書き込みに気付けないので、キャッシュ（@Cacheable の condition で isTracking() を見る）も
+//   ETag（etag() が null）も使わない。使い捨ての番号でキャッシュを埋めないように、番号はそのまま
+// ・番号はコミットの後で増やすので、プライマリの古いデータに新しい番号が付くことはない
+//   レプリカを使うときは、遅れたレプリカの古いデータが新しい番号でキャッシュされうるので、
+//   read-your-writes-ms（レプリカの遅れの上限）の後にもう一度増やす（その間の変更はまとめて1回）
+// ・ETag には起動ごとの値（epoch）を付ける。番号はインスタンスごとに数えるので、別のインスタンス・再起動後の同じ番号と区別する
+@Component
+public class TodoDataVersion {
+
+    private final long replicaLagMs; // レプリカを使わないなら 0
+    private final AtomicBoolean settlePending = new AtomicBoolean();
+    private volatile long lastChangedAt; // System.nanoTime()
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong version = new AtomicLong();
+    private volatile boolean tracking; // LISTEN していて、別のインスタンスの書き込みにも気付ける
+
+    public TodoDataVersion(@Value("${todo.datasource.replica.urls:}") String replicaUrls,
+                           @Value("${todo.datasource.replica.read-your-writes-ms:1000}") long readYourWritesMs) {
+        this.replicaLagMs = replicaUrls.isBlank() ? 0 : readYourWritesMs;
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    // 番号を信じてよいか（false の間はキャッシュ・ETag を使わない）
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    // このインスタンスの書き込みがコミットされた
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodoChanged(TodoChangedEvent event) {
+        bump();
+    }
+
+    // NOTIFY で書き込みに気付いた（このインスタンスの書き込みも届く）
+    public void changed() {
+        bump();
+    }
+
+    // LISTEN を始めた（true）・接続が切れた（false）。始めたときは、切れていた間の書き込みの分も増やしておく
+    public void tracking(boolean listening) {
+        if (listening) {
+            version.incrementAndGet();
+        }
+        tracking = listening;
+    }
+
+    private void bump() {
+        version.incrementAndGet();
+        lastChangedAt = System.nanoTime();
+        if (replicaLagMs > 0 && settlePending.compareAndSet(false, true)) {
+            settleAfter(replicaLagMs);
+        }
+    }
+
+    // 最後の変更から replicaLagMs たったら1回増やす（その前に変更があれば、そこから数え直す）
+    private void settleAfter(long delayMs) {
+        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS).execute(() -> {
+            long remainingMs = replicaLagMs - (System.nanoTime() - lastChangedAt) / 1_000_000;
+            if (remainingMs > 0) {
+                settleAfter(remainingMs);
+                return;
+            }
+            settlePending.set(false);
+            version.incrementAndGet();
+            // 見てから settlePending を戻すまでの間の変更は、ここで拾う
+            if (System.nanoTime() - lastChangedAt < replicaLagMs * 1_000_000 && settlePending.compareAndSet(false, true)) {
+                settleAfter(replicaLagMs);
+            }
+        });
+    }
+
+    // 一覧のETag（同じバージョン・同じ条件なら同じ値）。書き込みに気付けない間は null（ETag を付けない）
+    public String etag(Object... parts) {
+        if (!tracking) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder("W/\"").append(epoch).append('.').append(current());
+        for (Object part : parts) {
+            sb.append('-').append(part == null ? "" : part);
+        }
+        return sb.append('"').toString();
+    }
+}
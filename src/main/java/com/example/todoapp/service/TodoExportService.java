@@ -0,0 +1,92 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.SolrTodoItem;
+import com.example.todoapp.repository.TodoRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// 全ToDoを NDJSON（1行1件のJSON）で書き出す
+// 1件ずつ書いてすぐ捨てるので、件数が増えてもメモリ使用量は変わらない
+@Service
+public class TodoExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TodoExportService.class);
+
+    private final TodoRepository todoRepository;
+    private final SolrTodoService solrTodoService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public TodoExportService(TodoRepository todoRepository, SolrTodoService solrTodoService,
+                             EntityManager entityManager, ObjectMapper objectMapper) {
+        this.todoRepository = todoRepository;
+        this.solrTodoService = solrTodoService;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    // PostgreSQL から書き出す（ストリームはトランザクション内でしか読めない）
+    @Transactional(readOnly = true)
+    public long exportFromDatabase(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Todo.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long count = 0;
+        try (JsonGenerator generator = createGenerator(out);
+             Stream<Todo> todos = todoRepository.streamAllByOrderById()) {
+            Iterator<Todo> it = todos.iterator();
+            while (it.hasNext()) {
+                writer.writeValue(generator, it.next());
+                generator.writeRaw('\n');
+                // 永続化コンテキストに溜まらないよう定期的に手放す
+                if (++count % TodoRepository.EXPORT_FETCH_SIZE == 0) {
+                    entityManager.clear();
+                    generator.flush();
+                }
+            }
+        }
+        logger.info("Exported {} todos from the database", count);
+        return count;
+    }
+
+    // Solr から書き出す（cursorMark で1ページずつストリーム受信）
+    public long exportFromSolr(OutputStream out) throws IOException, SolrServerException {
+        ObjectWriter writer = objectMapper.writerFor(SolrTodoItem.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long count;
+        try (JsonGenerator generator = createGenerator(out)) {
+            count = solrTodoService.streamAllTodoItems(item -> {
+                try {
+                    writer.writeValue(generator, item);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        logger.info("Exported {} todos from Solr", count);
+        return count;
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        // レスポンスのストリームは閉じずにサーブレット側に任せる
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // 2件目からの前に既定の区切り（空白）を入れない。区切りは各行の後ろの改行だけ
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+}
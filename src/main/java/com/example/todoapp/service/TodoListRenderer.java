@@ -0,0 +1,41 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.config.CacheConfig; // キャッシュ名
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.CursorPage;
+import com.example.todoapp.model.RenderedTodoPage;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.Locale;
+import java.util.Set;
+
+// トップページの一覧部分をサーバー側で描画する
+// 描画済みのHTMLをデータバージョンごとにキャッシュするので、書き込みが無い間は DB にもテンプレートにも触らない
+// （キーのデータバージョンはメモリ上の番号で、引くときに DB には問い合わせない。TodoDataVersion を参照）
+// 登録日時は ISO 8601 のまま出し、表示の形はブラウザ（todo-app.js）で決める。キャッシュしたHTMLがサーバーのタイムゾーンによらない
+// （キャッシュの大きさは todo.cache.fragments.spec。開発時は 0 にしてテンプレートの変更がすぐ見えるようにしている）
+@Component
+public class TodoListRenderer {
+
+    private static final String TEMPLATE = "fragments/todo-list";
+    private static final Set<String> FRAGMENT = Set.of("items");
+
+    private final TodoService todoService;
+    private final ITemplateEngine templateEngine;
+
+    public TodoListRenderer(TodoService todoService, ITemplateEngine templateEngine) {
+        this.todoService = todoService;
+        this.templateEngine = templateEngine;
+    }
+
+    @Cacheable(cacheNames = CacheConfig.TODO_LIST_FRAGMENTS, key = "{@todoDataVersion.current(), #cursor, #limit}", condition = "@todoDataVersion.isTracking()")
+    public RenderedTodoPage render(String cursor, int limit) {
+        CursorPage<Todo> page = todoService.findTodoPage(cursor, limit);
+        Context context = new Context(Locale.JAPAN);
+        context.setVariable("todos", page.items());
+        return new RenderedTodoPage(templateEngine.process(TEMPLATE, FRAGMENT, context), page.nextCursor());
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.CursorPage;
+import com.example.todoapp.model.SolrTodoItem;
+import com.example.todoapp.model.TodoCursor;
+import com.example.todoapp.model.TodoSearchPage;
+import com.example.todoapp.repository.TodoRepository;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// /api/todos/search の検索。Solrが遅い・再起動中のときもリクエストを長く待たせない
+// ・Solrへの問い合わせは solr.search.timeout-ms で打ち切る
+// ・失敗・タイムアウト・遅い応答が続いたらサーキットブレーカーを開き、しばらくSolrに問い合わせない
+// ・打ち切ったとき・ブレーカーが開いているときは PostgreSQL の簡易検索（タイトル・詳細の部分一致）で返し、degraded を付ける
+//   形態素解析による一致やアーカイブ済みのToDoは含まれない
+// ・簡易検索の続きのカーソルには db: を付け、続きのページも PostgreSQL で読む（Solrの cursorMark とは互換がないため）
+// ・Solrの cursorMark の続き（2ページ目以降）は簡易検索では読めない。先頭ページを返すと画面で重複するので、
+//   空のページに degraded=restart を付けて返し、最初から検索し直してもらう
+// ・簡易検索（ILIKE の全件走査になりうる）は solr.search.fallback.statement-timeout-ms で打ち切る。
+//   Solrが止まっている間の検索がそのまま DB の重いクエリにならないように
+// ・Solrが 4xx を返した（検索式の誤りなど）ときは失敗として数えず、そのままエラーにする
+@Service
+public class TodoSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TodoSearchService.class);
+
+    public static final String DB_CURSOR_PREFIX = "db:";
+    public static final String RESTART = "restart"; // degraded の値：最初のページから検索し直す
+
+    private final SolrTodoService solrTodoService;
+    private final TodoRepository todoRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final JdbcTemplate jdbcTemplate;
+    private final long fallbackStatementTimeoutMs;
+    private final CircuitBreaker circuitBreaker;
+    private final long timeoutMs;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor(); // 同期APIのSolr検索・簡易検索用
+    private final MeterRegistry meterRegistry;
+
+    public TodoSearchService(SolrTodoService solrTodoService,
+                             TodoRepository todoRepository,
+                             PlatformTransactionManager transactionManager,
+                             JdbcTemplate jdbcTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${solr.search.timeout-ms:800}") long timeoutMs,
+                             @Value("${solr.search.fallback.statement-timeout-ms:2000}") long fallbackStatementTimeoutMs,
+                             @Value("${solr.search.circuit-breaker.window-size:50}") int windowSize,
+                             @Value("${solr.search.circuit-breaker.minimum-calls:20}") int minimumCalls,
+                             @Value("${solr.search.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+                             @Value("${solr.search.circuit-breaker.slow-call-ms:500}") long slowCallMs,
+                             @Value("${solr.search.circuit-breaker.open-ms:10000}") long openMs,
+                             @Value("${solr.search.circuit-breaker.half-open-calls:5}") int halfOpenCalls) {
+        this.solrTodoService = solrTodoService;
+        this.todoRepository = todoRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.jdbcTemplate = jdbcTemplate;
+        this.fallbackStatementTimeoutMs = fallbackStatementTimeoutMs;
+        this.meterRegistry = meterRegistry;
+        this.timeoutMs = timeoutMs;
+
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .slidingWindowSize(windowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallMs))
+                .slowCallRateThreshold(failureRateThreshold)
+                .waitDurationInOpenState(Duration.ofMillis(openMs))
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .ignoreException(TodoSearchService::isClientError)
+                .build();
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        this.circuitBreaker = registry.circuitBreaker("solr-search");
+        this.circuitBreaker.getEventPublisher().onStateTransition(event ->
+                logger.warn("Solr search circuit breaker: {}", event.getStateTransition()));
+        // resilience4j.circuitbreaker.state / calls などのメトリクス
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+    }
+
+    // 終了時に実行中の検索を打ち切る（待っているリクエストには失敗が返る）
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // カーソル方式（cursor が null なら先頭から）
+    public CompletableFuture<TodoSearchPage> searchPage(String q, String cursor, int rows, boolean includeArchived) {
+        if (cursor != null && cursor.startsWith(DB_CURSOR_PREFIX)) {
+            TodoCursor after = TodoCursor.decode(cursor.substring(DB_CURSOR_PREFIX.length()));
+            return fallback(() -> searchDatabase(q, after, rows), "continued");
+        }
+        String cursorMark = cursor != null ? cursor : CursorMarkParams.CURSOR_MARK_START;
+        return withFallback(
+                () -> solrTodoService.searchTodoItemsPageAsync(solrQuery(q), cursorMark, rows, includeArchived),
+                CursorMarkParams.CURSOR_MARK_START.equals(cursorMark) ? () -> searchDatabase(q, null, rows) : null);
+    }
+
+    // オフセット方式（互換用）
+    public CompletableFuture<TodoSearchPage> searchOffset(String q, int start, int rows, boolean includeArchived) {
+        return withFallback(
+                () -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return new CursorPage<>(solrTodoService.searchTodoItems(solrQuery(q), start, rows, includeArchived), null);
+                    } catch (IOException | SolrServerException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor),
+                () -> new CursorPage<>(toItems(todoRepository.searchByText(likePattern(q), start, rows)), null));
+    }
+
+    private CompletableFuture<TodoSearchPage> withFallback(Supplier<CompletableFuture<CursorPage<SolrTodoItem>>> solrSearch,
+                                                           Supplier<CursorPage<SolrTodoItem>> databaseSearch) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return fallback(databaseSearch, "circuit-open");
+        }
+        long started = System.nanoTime();
+        CompletableFuture<CursorPage<SolrTodoItem>> call;
+        try {
+            call = solrSearch.get();
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        return call.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .handle((page, error) -> {
+                    long elapsed = System.nanoTime() - started;
+                    if (error == null) {
+                        circuitBreaker.onSuccess(elapsed, TimeUnit.NANOSECONDS);
+                        return CompletableFuture.completedFuture(new TodoSearchPage(page.items(), page.nextCursor(), null));
+                    }
+                    Throwable cause = unwrap(error);
+                    circuitBreaker.onError(elapsed, TimeUnit.NANOSECONDS, cause);
+                    if (isClientError(cause)) {
+                        return CompletableFuture.<TodoSearchPage>failedFuture(cause);
+                    }
+                    String reason = cause instanceof TimeoutException ? "timeout" : "error";
+                    logger.warn("Solr search failed ({}), falling back to the database: {}", reason, cause.toString());
+                    return fallback(databaseSearch, reason);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    // 簡易検索はDBを待つので、Solrクライアントやタイマーのスレッドではなく仮想スレッドで行う
+    // databaseSearch が null（Solrの cursorMark の続き）なら、空のページで最初からやり直してもらう
+    private CompletableFuture<TodoSearchPage> fallback(Supplier<CursorPage<SolrTodoItem>> databaseSearch, String reason) {
+        Counter.builder("todo.search.degraded")
+                .description("Solrの代わりに PostgreSQL の簡易検索で返した回数（reason: circuit-open / timeout / error / continued）")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        if (databaseSearch == null) {
+            return CompletableFuture.completedFuture(new TodoSearchPage(List.of(), null, RESTART));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            CursorPage<SolrTodoItem> page = readOnlyTransaction.execute(tx -> {
+                jdbcTemplate.execute("set local statement_timeout = " + fallbackStatementTimeoutMs);
+                return databaseSearch.get();
+            });
+            return new TodoSearchPage(page.items(), page.nextCursor(), reason);
+        }, executor);
+    }
+
+    private CursorPage<SolrTodoItem> searchDatabase(String q, TodoCursor after, int rows) {
+        String pattern = likePattern(q);
+        // 1件多く取って次のページがあるかを判定する
+        List<Todo> found = after == null
+                ? todoRepository.searchByText(pattern, 0, rows + 1)
+                : todoRepository.searchByTextAfter(pattern, after.createdAt(), after.id(), rows + 1);
+        if (found.size() <= rows) {
+            return new CursorPage<>(toItems(found), null);
+        }
+        List<Todo> items = found.subList(0, rows);
+        Todo last = items.get(items.size() - 1);
+        String next = last.getCreatedAt() == null ? null
+                : DB_CURSOR_PREFIX + new TodoCursor(last.getCreatedAt(), last.getId()).encode();
+        return new CursorPage<>(toItems(items), next);
+    }
+
+    private static List<SolrTodoItem> toItems(List<Todo> todos) {
+        return todos.stream().map(SolrTodoItemMapper::toSolrTodoItem).toList();
+    }
+
+    private static String solrQuery(String q) {
+        return "title_strnew:" + q;
+    }
+
+    // ILIKE の特殊文字（\ % _）をそのままの文字として扱う
+    private static String likePattern(String q) {
+        String escaped = q.strip().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static boolean isClientError(Throwable error) {
+        return error instanceof SolrException e && e.code() >= 400 && e.code() < 500;
+    }
+}
@@ -1,8 +1,19 @@
 package com.example.todoapp.service;
 
+import com.example.todoapp.config.CacheConfig; // キャッシュ名
+import com.example.todoapp.entity.SolrOutboxEntry; // Solrへの反映待ちの記録
 import com.example.todoapp.entity.Todo; // データベースエンティティ
+import com.example.todoapp.model.CursorPage; // カーソル方式のページ
 import com.example.todoapp.model.SolrTodoItem; // Solr用のデータモデル
+import com.example.todoapp.model.TodoChangedEvent; // 変更イベント
+import com.example.todoapp.model.TodoCursor; // 一覧のページングカーソル
+import com.example.todoapp.model.TodoPatch; // 部分更新の内容
+import com.example.todoapp.repository.SolrOutboxRepository; // アウトボックスのリポジトリ
 import com.example.todoapp.repository.TodoRepository; // データベースリポジトリ
+import org.springframework.cache.annotation.Cacheable; // 読み取り結果のキャッシュ
+import org.springframework.context.ApplicationEventPublisher; // イベント発行
+import org.springframework.dao.OptimisticLockingFailureException; // 更新の競合
+import org.springframework.data.domain.PageRequest; // 取得件数の指定
 import org.springframework.stereotype.Service; // サービス層のコンポーネントであることを示す
 import org.springframework.transaction.annotation.Transactional; // トランザクション管理のため
 
@@ -17,27 +28,60 @@ import org.apache.solr.client.solrj.SolrServerException; // Solrサーバーエ
 public class TodoService {
 
     private final TodoRepository todoRepository; // ToDoのデータベース操作を担当
+    private final SolrOutboxRepository outboxRepository; // Solrへの反映待ちを記録
     private final SolrTodoService solrTodoService; // Solrの操作を担当
+    private final ApplicationEventPublisher eventPublisher; // 変更イベントの発行（キャッシュ破棄など）
 
-    // コンストラクタインジェクション: SpringがTodoRepositoryとSolrTodoServiceを自動で注入する
-    public TodoService(TodoRepository todoRepository, SolrTodoService solrTodoService) {
+    // コンストラクタインジェクション: Springが必要な部品を自動で注入する
+    public TodoService(TodoRepository todoRepository, SolrOutboxRepository outboxRepository,
+                       SolrTodoService solrTodoService, ApplicationEventPublisher eventPublisher) {
         this.todoRepository = todoRepository;
+        this.outboxRepository = outboxRepository;
         this.solrTodoService = solrTodoService;
+        this.eventPublisher = eventPublisher;
     }
 
     // すべてのToDoを取得するメソッド
+    @Transactional(readOnly = true)
     public List<Todo> findAllTodos() {
         return todoRepository.findAll();
     }
 
+    // カーソル方式で1ページ分のToDoを取得するメソッド（cursor が null なら先頭ページ）
+    // キーにデータバージョンを含めるので、書き込み後は自動的に新しい結果を読みに行く
+    @Cacheable(cacheNames = CacheConfig.TODO_PAGES, key = "{@todoDataVersion.current(), #cursor, #limit}", condition = "@todoDataVersion.isTracking()")
+    @Transactional(readOnly = true)
+    public CursorPage<Todo> findTodoPage(String cursor, int limit) {
+        // 1件多く取って次のページがあるかを判定する
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<Todo> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = todoRepository.findFirstPage(pageRequest);
+        } else {
+            TodoCursor after = TodoCursor.decode(cursor);
+            rows = todoRepository.findPageAfter(after.createdAt(), after.id(), pageRequest);
+        }
+
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<Todo> items = rows.subList(0, limit);
+        Todo last = items.get(items.size() - 1);
+        return new CursorPage<>(items, new TodoCursor(last.getCreatedAt(), last.getId()).encode());
+    }
+
     // IDでToDoを取得するメソッド
+    // キーにデータバージョンを含めるので、書き込みのコミットと入れ違いに読んだ古い行がキャッシュに残っても、もう読まれない
+    @Cacheable(cacheNames = CacheConfig.TODO_BY_ID, key = "{@todoDataVersion.current(), #id}", condition = "@todoDataVersion.isTracking()", unless = "#result == null")
+    @Transactional(readOnly = true)
     public Optional<Todo> findTodoById(Long id) {
         return todoRepository.findById(id);
     }
 
     // 新しいToDoを作成するメソッド
+    // Solrには直接送らず、同じトランザクションでアウトボックスに記録する（SolrOutboxRelay が後で送る）
     @Transactional // データベース操作が単一のトランザクションとして扱われるようにする
-    public Todo createTodo(Todo todo) throws IOException, SolrServerException {
+    public Todo createTodo(Todo todo) {
         // 作成日時と更新日時をセット
         if (todo.getCreatedAt() == null) {
             todo.setCreatedAt(new Date());
@@ -46,17 +90,15 @@ public class TodoService {
 
         // データベースに保存
         Todo savedTodo = todoRepository.save(todo);
-
-        // Solrにもインデックス（登録）
-        // SolrTodoItem に変換して SolrService に渡す
-        solrTodoService.indexTodoItem(convertToSolrTodoItem(savedTodo));
+        outboxRepository.save(new SolrOutboxEntry(savedTodo.getId(), SolrOutboxEntry.Operation.INDEX));
+        eventPublisher.publishEvent(TodoChangedEvent.created(savedTodo));
 
         return savedTodo; // 保存されたToDoを返す
     }
 
     // 既存のToDoを更新するメソッド
     @Transactional // トランザクション管理
-    public Optional<Todo> updateTodo(Long id, Todo updatedTodo) throws IOException, SolrServerException {
+    public Optional<Todo> updateTodo(Long id, Todo updatedTodo) {
         return todoRepository.findById(id).map(todo -> {
             // 既存のToDoの情報を更新
             todo.setTitle(updatedTodo.getTitle());
@@ -64,50 +106,55 @@ public class TodoService {
             todo.setCompleted(updatedTodo.isCompleted());
             todo.setUpdatedAt(new Date()); // 更新日時をセット
 
-            // データベースに保存（更a新）
+            // データベースに保存（更新）
             Todo savedTodo = todoRepository.save(todo);
-
-            // Solrのインデックスも更新
-            try {
-                solrTodoService.indexTodoItem(convertToSolrTodoItem(savedTodo));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            } catch (SolrServerException e) {
-                throw new RuntimeException(String.valueOf(e));
-            }
+            outboxRepository.save(new SolrOutboxEntry(savedTodo.getId(), SolrOutboxEntry.Operation.INDEX));
+            eventPublisher.publishEvent(TodoChangedEvent.updated(savedTodo));
 
             return savedTodo; // 更新されたToDoを返す
         });
     }
 
-    // ToDoを削除するメソッド
+    // 完了/未完了を切り替えるメソッド
+    // 読み込まずに update ... returning の1文で切り替える（同時に押されても両方の切り替えが残る）
+    @Transactional
+    public Optional<Todo> toggleTodo(Long id) {
+        return todoRepository.toggleCompleted(id, new Date()).map(this::afterUpdate);
+    }
+
+    // 指定された項目だけを更新するメソッド（PATCH）
+    // patch.version() を指定したときは、そのバージョンのままのときだけ更新し、他の更新が先にあれば例外にする（後勝ちにしない）
+    @Transactional
+    public Optional<Todo> patchTodo(Long id, TodoPatch patch) {
+        Optional<Todo> patched = todoRepository.patch(id, patch, new Date());
+        if (patched.isEmpty() && patch.version() != null && todoRepository.existsById(id)) {
+            throw new OptimisticLockingFailureException(
+                    "Todo " + id + " has been modified since version " + patch.version());
+        }
+        return patched.map(this::afterUpdate);
+    }
+
+    private Todo afterUpdate(Todo savedTodo) {
+        outboxRepository.save(new SolrOutboxEntry(savedTodo.getId(), SolrOutboxEntry.Operation.INDEX));
+        eventPublisher.publishEvent(TodoChangedEvent.updated(savedTodo));
+        return savedTodo;
+    }
+
+    // ToDoを削除するメソッド（存在しなかった場合は false）
     @Transactional // トランザクション管理
-    public void deleteTodo(Long id) throws IOException, SolrServerException {
+    public boolean deleteTodo(Long id) {
+        if (!todoRepository.existsById(id)) {
+            return false;
+        }
         // データベースから削除
         todoRepository.deleteById(id);
-
-        // Solrからも削除
-        solrTodoService.deleteTodoItem(String.valueOf(id)); // SolrのIDはStringなので変換
+        outboxRepository.save(new SolrOutboxEntry(id, SolrOutboxEntry.Operation.DELETE));
+        eventPublisher.publishEvent(TodoChangedEvent.deleted(id));
+        return true;
     }
 
     // Solrを使ってToDoを検索するメソッド
     public List<SolrTodoItem> searchTodos(String query, int start, int rows) throws IOException, SolrServerException {
         return solrTodoService.searchTodoItems(query, start, rows);
     }
-
-    // TodoエンティティをSolrTodoItemモデルに変換するヘルパーメソッド
-    private SolrTodoItem convertToSolrTodoItem(Todo todo) {
-        SolrTodoItem solrItem = new SolrTodoItem(
-                String.valueOf(todo.getId()),
-                todo.getTitle(),
-                todo.getDescription(),
-                todo.isCompleted(),
-                todo.getCreatedAt(),
-                todo.getUpdatedAt(),
-                todo.getTitle()
-        );
-        // Solrの単一値フィールド（title_s）にタイトルをコピー
-        solrItem.setTitleExact(todo.getTitle()); //
-        return solrItem;
-    }
-}
\ No newline at end of file
+}
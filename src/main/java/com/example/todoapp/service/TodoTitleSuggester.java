@@ -0,0 +1,215 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.model.TodoChangedEvent;
+import com.example.todoapp.repository.TodoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// タイトルの入力候補（サジェスト）。Solrには問い合わせず、メモリ上の前方一致の索引から返す
+// ・タイトルを正規化（NFKC・小文字・カタカナ→ひらがな）し、「単語の始まり」ごとの後ろの部分をキーにして並べておく
+//   日本語は空白で区切られないので、文字の種類（漢字・ひらがな・カタカナ・英数字）が変わる位置も単語の始まりとみなす
+//   例: 「明日の会議資料」→「明日の会議資料」「の会議資料」「会議資料」で引ける
+// ・起動時にDBから読み込み、その後は TodoChangeListener（データベースの NOTIFY）から渡される変更で追従する
+//   別のインスタンス・一括処理・アーカイブでの変更も反映される。通知が途切れたら（取りこぼしがありうるので）読み込み直す
+@Component
+public class TodoTitleSuggester {
+
+    private static final Logger logger = LoggerFactory.getLogger(TodoTitleSuggester.class);
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final int MAX_SCAN = 2000; // 1回の問い合わせで見るキーの上限（短い入力でも時間が伸びないように）
+
+    private final TodoRepository todoRepository;
+    private final TransactionTemplate primaryTransaction; // readOnly にしない（遅れたレプリカから読むと、その後の通知だけでは追いつけない）
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // 以下は lock で守る
+    private final Map<Long, String> titleById = new HashMap<>();
+    private final Map<String, Entry> entries = new HashMap<>(); // 正規化したタイトル -> 候補
+    private final TreeMap<String, Entry> terms = new TreeMap<>(); // 「単語の始まりからの部分 \0 正規化したタイトル」 -> 候補
+
+    public TodoTitleSuggester(TodoRepository todoRepository, PlatformTransactionManager transactionManager) {
+        this.todoRepository = todoRepository;
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    // 読み込み中に届いた変更は lock を待ってから反映されるので、取りこぼさない
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            titleById.clear();
+            entries.clear();
+            terms.clear();
+            List<TodoRepository.TodoTitle> rows = primaryTransaction.execute(tx -> todoRepository.findAllTitles());
+            if (rows != null) {
+                rows.forEach(row -> put(row.getId(), row.getTitle()));
+            }
+            logger.info("Title suggester loaded {} todos ({} distinct titles, {} terms)",
+                    titleById.size(), entries.size(), terms.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // コミットされた変更（TodoChangeListener から通知の順に呼ばれる）
+    public void onTodoChanged(TodoChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.type() == TodoChangedEvent.Type.DELETED || event.type() == TodoChangedEvent.Type.ARCHIVED) {
+                remove(event.id());
+            } else {
+                put(event.id(), event.todo().getTitle());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 入力途中の文字列に続くタイトルを最大 limit 件返す
+    // 並び順: タイトルの先頭から一致するもの → 同じタイトルのToDoが多いもの → 短いもの
+    public List<String> suggest(String prefix, int limit) {
+        String key = normalize(prefix == null ? "" : prefix.strip());
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Entry, Boolean> matches = new LinkedHashMap<>(); // 候補 -> 先頭から一致したか
+        lock.readLock().lock();
+        try {
+            int scanned = 0;
+            for (Map.Entry<String, Entry> term : terms.subMap(key, true, key + Character.MAX_VALUE, false).entrySet()) {
+                if (++scanned > MAX_SCAN) {
+                    break;
+                }
+                Entry entry = term.getValue();
+                boolean fromStart = term.getKey().length() == entry.normalized.length() * 2 + 1; // 先頭からの部分 = タイトル全体
+                matches.merge(entry, fromStart, Boolean::logicalOr);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<Entry, Boolean>> ranked = new ArrayList<>(matches.entrySet());
+        ranked.sort(Comparator.<Map.Entry<Entry, Boolean>, Boolean>comparing(Map.Entry::getValue).reversed()
+                .thenComparing(e -> e.getKey().count, Comparator.reverseOrder())
+                .thenComparingInt(e -> e.getKey().normalized.length())
+                .thenComparing(e -> e.getKey().normalized));
+        List<String> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            result.add(ranked.get(i).getKey().title);
+        }
+        return result;
+    }
+
+    // 以下は writeLock を持った状態で呼ぶこと
+    private void put(Long id, String title) {
+        if (id == null || title == null || title.isBlank()) {
+            remove(id);
+            return;
+        }
+        String previous = titleById.put(id, title);
+        if (title.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            release(previous);
+        }
+        String normalized = normalize(title);
+        Entry entry = entries.get(normalized);
+        if (entry == null) {
+            entry = new Entry(title, normalized);
+            entries.put(normalized, entry);
+            for (String start : wordStarts(normalized)) {
+                terms.put(start + KEY_SEPARATOR + normalized, entry);
+            }
+        }
+        entry.count++;
+    }
+
+    private void remove(Long id) {
+        String previous = id != null ? titleById.remove(id) : null;
+        if (previous != null) {
+            release(previous);
+        }
+    }
+
+    private void release(String title) {
+        String normalized = normalize(title);
+        Entry entry = entries.get(normalized);
+        if (entry != null && --entry.count <= 0) {
+            entries.remove(normalized);
+            for (String start : wordStarts(normalized)) {
+                terms.remove(start + KEY_SEPARATOR + normalized);
+            }
+        }
+    }
+
+    // 単語の始まり（先頭・区切り文字の直後・文字の種類が変わる位置）から後ろの部分
+    static List<String> wordStarts(String normalized) {
+        List<String> starts = new ArrayList<>();
+        int previousKind = -1;
+        for (int i = 0; i < normalized.length(); ) {
+            int cp = normalized.codePointAt(i);
+            int kind = kind(cp);
+            if (kind != SEPARATOR && kind != previousKind) {
+                starts.add(normalized.substring(i));
+            }
+            previousKind = kind;
+            i += Character.charCount(cp);
+        }
+        return starts;
+    }
+
+    private static final int SEPARATOR = 0;
+
+    private static int kind(int cp) {
+        if (Character.isWhitespace(cp) || !Character.isLetterOrDigit(cp)) {
+            return SEPARATOR;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return switch (script) {
+            case HAN -> 1;
+            case HIRAGANA -> 2; // カタカナは正規化でひらがなになっている
+            case LATIN, COMMON -> 3;
+            default -> 4 + script.ordinal();
+        };
+    }
+
+    // NFKC（全角英数・半角カナをそろえる）→ 小文字 → カタカナをひらがなに
+    static String normalize(String text) {
+        String nfkc = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(nfkc.length());
+        for (int i = 0; i < nfkc.length(); i++) {
+            char c = nfkc.charAt(i);
+            sb.append(c >= 'ァ' && c <= 'ヶ' ? (char) (c - 0x60) : c);
+        }
+        return sb.toString();
+    }
+
+    private static final class Entry {
+        private final String title; // 表示用（最初に登録されたときの表記）
+        private final String normalized;
+        private int count; // このタイトルのToDoの数
+
+        private Entry(String title, String normalized) {
+            this.title = title;
+            this.normalized = normalized;
+        }
+    }
+}
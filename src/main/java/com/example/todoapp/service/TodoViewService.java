@@ -0,0 +1,110 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.config.CacheConfig; // キャッシュ名
+import com.example.todoapp.model.CursorPage; // カーソル方式のページ
+import com.example.todoapp.model.TodoCursor; // 一覧のページングカーソル
+import com.example.todoapp.model.TodoListItem; // 一覧表示用の読み取り専用のToDo
+import com.example.todoapp.model.TodoStatusCounts; // 完了状態ごとの件数
+import com.example.todoapp.repository.TodoArchiveRepository;
+import com.example.todoapp.repository.TodoRepository;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+// 一覧画面向けの絞り込みビュー（未完了/完了、登録日時・更新日時の範囲、アーカイブ済みを含む一覧、件数）
+// ・DBでインデックスを使って絞り込み、TodoListItem（エンティティではない）で返す
+// ・読み取り専用トランザクションなので、レプリカがあればそちらで読む
+// ・findTodoPage と同じく、キーにデータバージョンを含めてキャッシュする
+@Service
+public class TodoViewService {
+
+    private final TodoRepository todoRepository;
+    private final TodoArchiveRepository todoArchiveRepository;
+
+    public TodoViewService(TodoRepository todoRepository, TodoArchiveRepository todoArchiveRepository) {
+        this.todoRepository = todoRepository;
+        this.todoArchiveRepository = todoArchiveRepository;
+    }
+
+    // 未完了（completed = false）または完了の一覧（登録順）
+    @Cacheable(cacheNames = CacheConfig.TODO_PAGES, key = "{@todoDataVersion.current(), 'status', #completed, #cursor, #limit}", condition = "@todoDataVersion.isTracking()")
+    @Transactional(readOnly = true)
+    public CursorPage<TodoListItem> findByStatus(boolean completed, String cursor, int limit) {
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<TodoListItem> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = todoRepository.findByStatusFirstPage(completed, pageRequest);
+        } else {
+            TodoCursor after = TodoCursor.decode(cursor);
+            rows = todoRepository.findByStatusAfter(completed, after.createdAt(), after.id(), pageRequest);
+        }
+        return toPage(rows, limit, TodoListItem::createdAt);
+    }
+
+    // 登録日時が [from, to) のもの（登録順）
+    @Cacheable(cacheNames = CacheConfig.TODO_PAGES, key = "{@todoDataVersion.current(), 'created', #from, #to, #cursor, #limit}", condition = "@todoDataVersion.isTracking()")
+    @Transactional(readOnly = true)
+    public CursorPage<TodoListItem> findCreatedBetween(Date from, Date to, String cursor, int limit) {
+        TodoCursor after = cursorOrStart(cursor, from);
+        List<TodoListItem> rows = todoRepository.findCreatedBefore(to, after.createdAt(), after.id(),
+                PageRequest.of(0, limit + 1));
+        return toPage(rows, limit, TodoListItem::createdAt);
+    }
+
+    // 更新日時が [from, to) のもの（更新順）。カーソルは (updatedAt, id)
+    @Cacheable(cacheNames = CacheConfig.TODO_PAGES, key = "{@todoDataVersion.current(), 'updated', #from, #to, #cursor, #limit}", condition = "@todoDataVersion.isTracking()")
+    @Transactional(readOnly = true)
+    public CursorPage<TodoListItem> findUpdatedBetween(Date from, Date to, String cursor, int limit) {
+        TodoCursor after = cursorOrStart(cursor, from);
+        List<TodoListItem> rows = todoRepository.findUpdatedBefore(to, after.createdAt(), after.id(),
+                PageRequest.of(0, limit + 1));
+        return toPage(rows, limit, TodoListItem::updatedAt);
+    }
+
+    // アーカイブ済みも含めた一覧（登録順）。/api/todos?includeArchived=true
+    @Cacheable(cacheNames = CacheConfig.TODO_PAGES, key = "{@todoDataVersion.current(), 'withArchived', #cursor, #limit}", condition = "@todoDataVersion.isTracking()")
+    @Transactional(readOnly = true)
+    public CursorPage<TodoListItem> findAllIncludingArchived(String cursor, int limit) {
+        TodoCursor after = cursor == null || cursor.isEmpty() ? null : TodoCursor.decode(cursor);
+        return toPage(todoArchiveRepository.findPageIncludingArchived(after, limit + 1), limit, TodoListItem::createdAt);
+    }
+
+    @Cacheable(cacheNames = CacheConfig.TODO_PAGES, key = "{@todoDataVersion.current(), 'counts'}", condition = "@todoDataVersion.isTracking()")
+    @Transactional(readOnly = true)
+    public TodoStatusCounts countByStatus() {
+        long open = 0;
+        long completed = 0;
+        for (TodoRepository.StatusCount row : todoRepository.countByStatus()) {
+            if (row.getCompleted()) {
+                completed = row.getCount();
+            } else {
+                open = row.getCount();
+            }
+        }
+        return new TodoStatusCounts(open, completed, open + completed);
+    }
+
+    // 最初のページは (from, 0) より後ろ = from 以降のすべて（IDは1から）
+    private static TodoCursor cursorOrStart(String cursor, Date from) {
+        if (cursor == null || cursor.isEmpty()) {
+            return new TodoCursor(from, 0);
+        }
+        return TodoCursor.decode(cursor);
+    }
+
+    // 1件多く取った結果から、ページと次のカーソルを作る
+    private static CursorPage<TodoListItem> toPage(List<TodoListItem> rows, int limit,
+                                                   Function<TodoListItem, Date> sortKey) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<TodoListItem> items = rows.subList(0, limit);
+        TodoListItem last = items.get(items.size() - 1);
+        return new CursorPage<>(items, new TodoCursor(sortKey.apply(last), last.id()).encode());
+    }
+}
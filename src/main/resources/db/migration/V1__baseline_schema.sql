@@ -0,0 +1,58 @@
+-- エンティティ（Todo / SolrOutboxEntry / JobCheckpoint）のテーブル
+-- 以前は Hibernate の ddl-auto=update で作っていたので、そのDBに流しても壊さないよう「無ければ作る」で書く
+-- （spring.flyway.baseline-on-migrate=true / baseline-version=0 で、履歴テーブルの無い既存のDBにも V1 から流す）
+
+create sequence if not exists todo_seq start with 1 increment by 50;
+create sequence if not exists solr_outbox_seq start with 1 increment by 50;
+
+create table if not exists todo (
+    id bigint not null,
+    title varchar(255),
+    description varchar(255),
+    completed boolean not null,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    version bigint default 0 not null,
+    primary key (id)
+);
+
+-- version（楽観ロック）より前に作られたテーブル
+alter table todo add column if not exists version bigint default 0 not null;
+
+create index if not exists idx_todo_created_at_id on todo (created_at, id);
+create index if not exists idx_todo_completed_created_at_id on todo (completed, created_at, id);
+create index if not exists idx_todo_updated_at_id on todo (updated_at, id);
+
+create table if not exists solr_outbox (
+    id bigint not null,
+    todo_id bigint not null,
+    operation varchar(16) not null,
+    created_at timestamp(6),
+    attempts integer not null,
+    last_error varchar(1000),
+    next_attempt_at timestamp(6),
+    dead_lettered_at timestamp(6),
+    primary key (id)
+);
+
+-- 再送の間隔と、あきらめたもの（SolrOutboxRelay）。これらより前に作られたテーブルにも足す
+-- next_attempt_at: 送信に失敗したものは、この時刻まで読まない（失敗が続くほど間隔を広げる）
+-- dead_lettered_at: solr.outbox.max-attempts 回失敗したもの。もう送らず、後ろのエントリを止めないよう読み飛ばす
+--                   （原因を直したら dead_lettered_at / next_attempt_at を null に戻せば、また送られる）
+alter table solr_outbox add column if not exists next_attempt_at timestamp(6);
+alter table solr_outbox add column if not exists dead_lettered_at timestamp(6);
+
+-- リレーが読むのは送るべきものだけ（あきらめたものが溜まっても読む量は変わらない）
+create index if not exists idx_solr_outbox_pending on solr_outbox (id) where dead_lettered_at is null;
+
+-- Hibernate が作った check 制約は operation を足しても作り直されなかったので、ここで今の値に合わせる
+alter table solr_outbox drop constraint if exists solr_outbox_operation_check;
+alter table solr_outbox add constraint solr_outbox_operation_check
+    check (operation in ('INDEX', 'DELETE', 'ARCHIVE'));
+
+create table if not exists job_checkpoint (
+    name varchar(64) not null,
+    position bigint not null,
+    updated_at timestamp(6),
+    primary key (name)
+);
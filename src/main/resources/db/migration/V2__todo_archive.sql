@@ -0,0 +1,21 @@
+-- アーカイブ用のテーブル todo_archive（Hibernate の ddl-auto はパーティションテーブルを作れないので、以前は起動時に作っていた）
+-- 完了日時（updated_at）の月ごとのパーティションに分け、古い月はパーティションごと切り離し・削除できるようにする
+-- 月ごとのパーティションは TodoArchiveRepository が移す直前に作る。updated_at が null のものは default に入る
+
+create table if not exists todo_archive (
+    id bigint not null,
+    title varchar(255),
+    description varchar(255),
+    completed boolean not null,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    archived_at timestamp(6) not null
+) partition by range (updated_at);
+
+create table if not exists todo_archive_default partition of todo_archive default;
+
+-- includeArchived の一覧（登録順のキーセットページング）用
+create index if not exists idx_todo_archive_created_at_id on todo_archive (created_at, id);
+
+-- 主キーはパーティションキーを含める必要があり、updated_at が null の行を入れられなくなるので付けない
+create index if not exists idx_todo_archive_id on todo_archive (id);
@@ -0,0 +1,7 @@
+-- Solrが使えないときの簡易検索（タイトル・詳細の部分一致、TodoRepository.searchByText）用
+-- pg_trgm は PostgreSQL 13 以降 trusted 拡張なので、データベースの所有者なら作れる
+
+create extension if not exists pg_trgm;
+
+create index if not exists idx_todo_title_trgm on todo using gin (title gin_trgm_ops);
+create index if not exists idx_todo_description_trgm on todo using gin (description gin_trgm_ops);
@@ -0,0 +1,28 @@
+-- 削除されたToDoの記録（SolrReconciler が前回から削除された分だけを見るため）
+-- アプリの削除・一括削除・アーカイブ（todo_archive への移動）のどれでも残るよう、todo の削除トリガーで書く
+-- 古いものは SolrReconciler が solr.reconcile.tombstone-retention を過ぎたら消す
+-- deleted_at は削除した時点のデータベースの時計（clock_timestamp()、タイムゾーン付き）
+-- トランザクション開始時刻（localtimestamp など）だと、長いトランザクションの削除が SolrReconciler の位置より前に入ってしまう
+-- 位置（until）も同じデータベースの時計で決める（TodoTombstoneRepository.settledUntil）
+
+create table if not exists todo_tombstone (
+    todo_id bigint not null,
+    deleted_at timestamptz not null default clock_timestamp()
+);
+
+create index if not exists idx_todo_tombstone_deleted_at_todo_id on todo_tombstone (deleted_at, todo_id);
+
+-- 行ごとではなく文ごとに1回、消えた行（遷移テーブル）をまとめて書く
+create or replace function record_todo_tombstones() returns trigger
+language plpgsql as $$
+begin
+    insert into todo_tombstone (todo_id) select id from deleted_todo;
+    return null;
+end;
+$$;
+
+drop trigger if exists trg_todo_tombstone on todo;
+create trigger trg_todo_tombstone
+    after delete on todo
+    referencing old table as deleted_todo
+    for each statement execute function record_todo_tombstones();
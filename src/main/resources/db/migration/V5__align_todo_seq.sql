@@ -0,0 +1,7 @@
+-- todo.id を IDENTITY からシーケンス（todo_seq）に切り替える前のDBでは、既存データより小さい番号が払い出されてしまう
+-- 以前は起動後（リクエストを受け始めてから）に揃えていたが、その間の登録が主キーの重複になるので、マイグレーションで揃える
+-- allocationSize(50) 分の余裕を持たせて、次に払い出される範囲が既存の最大IDより後ろになるようにする
+
+select setval('todo_seq', m + 50)
+from (select max(id) as m from todo) t
+where m is not null and m >= (select last_value from todo_seq);
@@ -0,0 +1,20 @@
+-- ToDoの変更を LISTEN/NOTIFY で知らせる（TodoChangeListener が受け取り、変更通知（SSE）で配信する）
+-- どのインスタンスから書いても（一括処理・アーカイブも）全インスタンスに届く。通知はコミットされたときだけ届く
+-- 内容は「操作:ID」（INSERT:12 / UPDATE:12 / DELETE:12）。同じトランザクションの同じ内容は1つにまとめられる
+
+create or replace function notify_todo_change() returns trigger
+language plpgsql as $$
+begin
+    if tg_op = 'DELETE' then
+        perform pg_notify('todo_changes', 'DELETE:' || old.id);
+    else
+        perform pg_notify('todo_changes', tg_op || ':' || new.id);
+    end if;
+    return null;
+end;
+$$;
+
+drop trigger if exists trg_todo_change_notify on todo;
+create trigger trg_todo_change_notify
+    after insert or update or delete on todo
+    for each row execute function notify_todo_change();
@@ -1,69 +1,43 @@
+// 「もっと見る」で使う次ページのカーソルと検索キーワード
+let nextCursor = null;
+let currentQuery = null;
+
 // タスクをサーバーから読み込んで画面に表示する関数
-function loadTodos(searchQuery = null) { // searchQurery 引数を追加
-    let url = "/api/todos"; // デフォルトは全件取得API
+// cursor を渡したときは続きのページを末尾に追加する
+function loadTodos(searchQuery = null, cursor = null) { // searchQurery 引数を追加
+    let url = "/api/todos"; // デフォルトは一覧API（1ページ分）
 
     if (searchQuery) {
         url = `/api/todos/search?q=${encodeURIComponent(searchQuery)}`;
     }
+    if (cursor) {
+        url += (url.includes("?") ? "&" : "?") + `cursor=${encodeURIComponent(cursor)}`;
+    }
+
+    $.get(url, function (data, textStatus, xhr) {
+        // 検索の続きを読めなかった（Solrが使えず簡易検索になった）ときは、重ならないよう最初のページから読み直す
+        if (cursor && xhr.getResponseHeader("X-Search-Degraded") === "restart") {
+            loadTodos(searchQuery);
+            return;
+        }
+        if (!cursor) {
+            $("#todo-list").empty();
+        }
 
-    $.get(url, function (data) {
-        $("#todo-list").empty();
+        // 次のページがあれば「もっと見る」ボタンを表示
+        currentQuery = searchQuery;
+        nextCursor = xhr.getResponseHeader("X-Next-Cursor");
+        $("#loadMoreBtn").toggleClass("d-none", !nextCursor);
 
       if (!Array.isArray(data)) {
             console.error("APIから返されたデータが配列ではありません:", data);
         }
 
         data.forEach(function (todo) {
-
-            const checkedClass = todo.completed ? "text-decoration-line-through" : "";
-            const displayedTitle = todo.title_strnew || todo.title;
-
-            // 登録日時をフォーマット
-            let createdAtDisplay = '';
-            if (todo.createdAt) {
-                try {
-                    // APIからの文字列形式 (ISO 8601) を考慮して日付オブジェクトに変換
-                    const date = new Date(todo.createdAt);
-                    // Dateオブジェクトが有効か確認
-                    if (!isNaN(date.getTime())) {
-                        // 日本語のロケールで整形
-                        createdAtDisplay = date.toLocaleString('ja-JP', {
-                            year: 'numeric',
-                            month: '2-digit',
-                            day: '2-digit',
-                            hour: '2-digit',
-                            minute: '2-digit'
-                        });
-                    } else {
-                        console.warn("Invalid date for createdAt:", todo.createdAt);
-                    }
-                } catch (e) {
-                    console.error("Error parsing createdAt date:", todo.createdAt, e);
-                }
-            }
-
-            const todoId = (todo.id !== null && todo.id !== undefined && todo.id !== "null") ? todo.id : '';
-            // console.log("Todo ID (after check):", todoId); // デバッグ用
-
-            // IDが有効な場合のみリストアイテムを生成
-            if (todoId === '') {
-                console.warn("Skipping todo item due to invalid ID:", todo);
-                return;
+            const listItem = renderTodo(todo);
+            if (listItem) {
+                $("#todo-list").append(listItem);
             }
-
-            const listItem = `
-                <li class="list-group-item d-flex justify-content-between align-items-center">
-                    <div>
-                        <span class="${checkedClass}">${displayedTitle}</span>
-                        ${todo.description ? `<br><small class="text-muted">詳細: ${todo.description}</small>` : ''}
-                        ${createdAtDisplay ? `<br><small class="text-muted">登録日時: ${createdAtDisplay}</small>` : ''}
-                    </div>
-                    <div>
-                        <button class="btn btn-sm btn-outline-success me-1 toggle-btn" data-id="${todoId}">✓</button>
-                        <button class="btn btn-sm btn-outline-danger delete-btn" data-id="${todoId}">✕</button>
-                    </div>
-                </li>`;
-            $("#todo-list").append(listItem);
         });
     }).fail(function(xhr, status, error) {
         console.error("ToDoリストの取得に失敗しました:", status, error, xhr.responseText);
@@ -71,6 +45,68 @@ function loadTodos(searchQuery = null) { // searchQurery 引数を追加
     });
 }
 
+// 登録日時（エポックミリ秒・ISO 8601 の文字列）を日本語の表記にする。サーバーで描画した一覧もこれで表示する
+// 読めないものは空文字
+function formatCreatedAt(value) {
+    try {
+        const date = new Date(value);
+        // Dateオブジェクトが有効か確認
+        if (isNaN(date.getTime())) {
+            console.warn("Invalid date for createdAt:", value);
+            return '';
+        }
+        // 日本語のロケールで整形（タイムゾーンはブラウザのもの）
+        return date.toLocaleString('ja-JP', {
+            year: 'numeric',
+            month: '2-digit',
+            day: '2-digit',
+            hour: '2-digit',
+            minute: '2-digit'
+        });
+    } catch (e) {
+        console.error("Error parsing createdAt date:", value, e);
+        return '';
+    }
+}
+
+// サーバーで描画した一覧の登録日時（time 要素）を埋める
+function formatRenderedDates(container) {
+    $(container).find("time.created-at").each(function () {
+        $(this).text(formatCreatedAt($(this).attr("datetime")));
+    });
+}
+
+// ToDo 1件分のリスト項目（HTML）を作る。IDが無いものは null
+function renderTodo(todo) {
+    const checkedClass = todo.completed ? "text-decoration-line-through" : "";
+    const displayedTitle = todo.title_strnew || todo.title;
+
+    // 登録日時をフォーマット
+    const createdAtDisplay = todo.createdAt ? formatCreatedAt(todo.createdAt) : '';
+
+    const todoId = (todo.id !== null && todo.id !== undefined && todo.id !== "null") ? todo.id : '';
+    // console.log("Todo ID (after check):", todoId); // デバッグ用
+
+    // IDが有効な場合のみリストアイテムを生成
+    if (todoId === '') {
+        console.warn("Skipping todo item due to invalid ID:", todo);
+        return null;
+    }
+
+    return `
+        <li class="list-group-item d-flex justify-content-between align-items-center" data-id="${todoId}">
+            <div>
+                <span class="${checkedClass}">${displayedTitle}</span>
+                ${todo.description ? `<br><small class="text-muted">詳細: ${todo.description}</small>` : ''}
+                ${createdAtDisplay ? `<br><small class="text-muted">登録日時: <time class="created-at" datetime="${new Date(todo.createdAt).toISOString()}">${createdAtDisplay}</time></small>` : ''}
+            </div>
+            <div>
+                <button class="btn btn-sm btn-outline-success me-1 toggle-btn" data-id="${todoId}">✓</button>
+                <button class="btn btn-sm btn-outline-danger delete-btn" data-id="${todoId}">✕</button>
+            </div>
+        </li>`;
+}
+
 // タスクを追加する処理（フォーム送信時）
 $("#todo-form").submit(function (e) {
     e.preventDefault();
@@ -94,7 +130,7 @@ $("#todo-form").submit(function (e) {
         success: function () {
             $("#todoTitle").val("");
             $("#todoDescription").val("");
-            loadTodos(); // 成功したらリストを更新
+            reloadUnlessFeedConnected(); // 変更通知が届くので、つながっていなければリストを読み直す
         },
         error: function(xhr, status, error) {
             console.error("ToDoの追加に失敗しました:", status, error, xhr.responseText);
@@ -116,7 +152,7 @@ $("#todo-list").on("click", ".toggle-btn", function () {
         url: `/api/todos/${id}`,
         method: "PUT",
         success: function () {
-            loadTodos(); // 成功したらリストを更新
+            reloadUnlessFeedConnected(); // 変更通知が届くので、つながっていなければリストを読み直す
         },
         error: function(xhr, status, error) {
             console.error("ToDoの切り替えに失敗しました:", status, error, xhr.responseText);
@@ -139,7 +175,7 @@ $("#todo-list").on("click", ".delete-btn", function () {
             url: `/api/todos/${id}`,
             method: "DELETE",
             success: function () {
-                loadTodos(); // 成功したらリストを更新
+                reloadUnlessFeedConnected(); // 変更通知が届くので、つながっていなければリストを読み直す
             },
             error: function(xhr, status, error) {
                 console.error("ToDoの削除に失敗しました:", status, error, xhr.responseText);
@@ -168,7 +204,139 @@ $("#clearSearchBtn").on("click", function() {
 });
 
 
+// 「もっと見る」ボタンで次のページを読み込む
+$("#loadMoreBtn").on("click", function () {
+    if (nextCursor) {
+        loadTodos(currentQuery, nextCursor);
+    }
+});
+
+// ★★★ タイトルの入力候補（サジェスト） ★★★
+// 入力が 150ms 止まってから問い合わせる。前の問い合わせがまだなら取り消す
+// 日本語入力の変換中（compositionstart〜compositionend）は問い合わせない
+const SUGGEST_DELAY_MS = 150;
+let suggestTimer = null;
+let suggestRequest = null;
+let composing = false;
+
+function requestSuggestions(prefix) {
+    if (suggestRequest) {
+        suggestRequest.abort();
+    }
+    if (prefix.trim() === "") {
+        $("#searchSuggestions").empty();
+        return;
+    }
+    suggestRequest = $.ajax({
+        url: `/api/todos/suggest?q=${encodeURIComponent(prefix)}&limit=10`,
+        method: "GET",
+        success: function (titles) {
+            const options = titles.map(title => $("<option>").attr("value", title));
+            $("#searchSuggestions").empty().append(options);
+        },
+        error: function (xhr, status) {
+            if (status !== "abort") {
+                console.warn("入力候補の取得に失敗しました:", status);
+            }
+        },
+        complete: function () {
+            suggestRequest = null;
+        }
+    });
+}
+
+$("#searchQuery")
+    .on("compositionstart", function () {
+        composing = true;
+    })
+    .on("compositionend", function () {
+        composing = false;
+        $(this).trigger("input"); // 確定した文字で問い合わせる
+    })
+    .on("input", function () {
+        if (composing) {
+            return;
+        }
+        clearTimeout(suggestTimer);
+        const prefix = $(this).val();
+        suggestTimer = setTimeout(() => requestSuggestions(prefix), SUGGEST_DELAY_MS);
+    });
+
+// ★★★ 変更通知（Server-Sent Events） ★★★
+// 他のタブ・他の人の変更も含めて、変わった1件だけを画面に反映する（一覧全体は読み直さない）
+let feedConnected = false;
+let feedEventId = null; // 最後に受け取ったイベントID（EventSource は再接続時にこの続きを求める）
+let feedReconnecting = false;
+
+function reloadUnlessFeedConnected() {
+    if (!feedConnected) {
+        loadTodos(currentQuery);
+    }
+}
+
+function applyTodoChange(change) {
+    const id = String(change.id);
+    const existing = $("#todo-list").children("li").filter(function () {
+        return String($(this).data("id")) === id;
+    });
+
+    if (change.type === "DELETED" || change.type === "ARCHIVED") { // アーカイブされたものも一覧から消す
+        existing.remove();
+        return;
+    }
+    const listItem = renderTodo(change.todo);
+    if (!listItem) {
+        return;
+    }
+    if (existing.length) {
+        existing.replaceWith(listItem);
+    } else if (change.type === "CREATED" && !currentQuery && !nextCursor) {
+        // 一覧は登録順なので、最後のページまで表示しているときだけ末尾に足す（途中なら「もっと見る」で出てくる）
+        $("#todo-list").append(listItem);
+    }
+}
+
+function connectChangeFeed() {
+    if (!window.EventSource) {
+        return; // 対応していないブラウザは従来どおり操作のたびに読み直す
+    }
+    const source = new EventSource("/api/todos/changes");
+    source.onopen = function () {
+        // IDを1つも受け取らないうちに切れたときは、続きを求められないので一覧を読み直す
+        if (feedReconnecting && !feedEventId) {
+            loadTodos(currentQuery);
+        }
+        feedConnected = true;
+    };
+    source.onerror = function () {
+        feedConnected = false; // EventSource が自動で再接続し、Last-Event-ID の続きから受け取る
+        feedReconnecting = true;
+    };
+    // つないだ直後に今のIDが届く
+    source.addEventListener("ready", function (e) {
+        feedEventId = e.lastEventId;
+    });
+    source.addEventListener("todo", function (e) {
+        feedEventId = e.lastEventId;
+        applyTodoChange(JSON.parse(e.data));
+    });
+    // 取りこぼした変更を送り直せないとき（サーバー再起動・別のサーバーへの再接続など）は一覧を読み直す
+    source.addEventListener("reset", function (e) {
+        feedEventId = e.lastEventId;
+        loadTodos(currentQuery);
+    });
+}
+
 // ページを開いた時、最初に一度だけタスクを表示する
+// サーバー側で最初のページが描画済みなら読み直さず、続きのカーソルだけ受け取る
 $(document).ready(function () {
-    loadTodos();
+    const list = $("#todo-list");
+    if (list.data("rendered")) {
+        formatRenderedDates(list);
+        nextCursor = list.attr("data-next-cursor") || null;
+        $("#loadMoreBtn").toggleClass("d-none", !nextCursor);
+    } else {
+        loadTodos();
+    }
+    connectChangeFeed();
 });
\ No newline at end of file
@@ -0,0 +1,153 @@
+package com.example.todoapp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private static final long WINDOW_MS = 1000;
+
+    private final HikariDataSource primary = mock(HikariDataSource.class);
+    private final HikariDataSource replica = mock(HikariDataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(WINDOW_MS);
+    private DataSource router;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        ReadWriteRoutingDataSource routing =
+                new ReadWriteRoutingDataSource(primary, List.of(replica), 30_000, new SimpleMeterRegistry());
+        router = routing.getTargetDataSource();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void readsGoToTheReplicaForClientsThatHaveNotWritten() throws Exception {
+        assertThat(readInRequest(new MockHttpServletRequest())).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void readsGoToThePrimaryWithinTheWindowOfTheClientsOwnWrite() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, Long.toString(System.currentTimeMillis() - 100)));
+
+        assertThat(readInRequest(request)).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void expiredOrForgedWriteCookiesAreIgnored() throws Exception {
+        MockHttpServletRequest old = new MockHttpServletRequest();
+        old.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, Long.toString(System.currentTimeMillis() - WINDOW_MS - 1)));
+        MockHttpServletRequest future = new MockHttpServletRequest();
+        future.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, Long.toString(System.currentTimeMillis() + 60_000)));
+        MockHttpServletRequest broken = new MockHttpServletRequest();
+        broken.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, "soon"));
+
+        assertThat(readInRequest(old)).isSameAs(replicaConnection);
+        assertThat(readInRequest(future)).isSameAs(replicaConnection);
+        assertThat(readInRequest(broken)).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void commitMarksTheWriterOnlyAndLaterReadsInTheSameRequestUseThePrimary() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        List<Connection> used = new ArrayList<>();
+        filter.doFilter(new MockHttpServletRequest(), response, (req, res) -> {
+            used.add(write());
+            used.add(read());
+        });
+
+        assertThat(used).containsExactly(primaryConnection, primaryConnection);
+        String setCookie = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertThat(setCookie).startsWith(ReadYourWritesFilter.COOKIE_NAME + "=").contains("HttpOnly");
+
+        // 別のクライアント（Cookie なし）の読み取りはレプリカのまま
+        assertThat(readInRequest(new MockHttpServletRequest())).isSameAs(replicaConnection);
+        // Cookie を返してきた書き込んだクライアントはプライマリ
+        MockHttpServletRequest writer = new MockHttpServletRequest();
+        writer.setCookies(response.getCookie(ReadYourWritesFilter.COOKIE_NAME));
+        assertThat(readInRequest(writer)).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void readsOutsideAnyRequestUseTheReplica() throws Exception {
+        write();
+        assertThat(read()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void perCallCredentialsAreDelegatedToThePrimary() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(primary.getConnection("reporting", "secret")).thenReturn(connection);
+
+        assertThat(router.getConnection("reporting", "secret")).isSameAs(connection);
+    }
+
+    private Connection readInRequest(MockHttpServletRequest request) throws Exception {
+        AtomicReference<Connection> used = new AtomicReference<>();
+        FilterChain chain = (req, res) -> used.set(read());
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return used.get();
+    }
+
+    // 読み取り専用トランザクションで接続を取る
+    private Connection read() {
+        return inTransaction(true, false);
+    }
+
+    // 書き込みトランザクションで接続を取り、コミットする
+    private Connection write() {
+        return inTransaction(false, true);
+    }
+
+    private Connection inTransaction(boolean readOnly, boolean commit) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+        try {
+            Connection connection = router.getConnection();
+            if (commit) {
+                TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            }
+            return connection;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+    }
+}
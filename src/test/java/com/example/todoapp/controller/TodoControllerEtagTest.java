@@ -0,0 +1,161 @@
+package com.example.todoapp.controller;
+
+import com.example.todoapp.config.ApiFormatConfig;
+import com.example.todoapp.config.VaryAcceptFilter;
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.TodoPatch;
+import com.example.todoapp.service.SolrTodoService;
+import com.example.todoapp.service.TodoDataVersion;
+import com.example.todoapp.service.TodoListRenderer;
+import com.example.todoapp.service.TodoSearchService;
+import com.example.todoapp.service.TodoService;
+import com.example.todoapp.service.TodoViewService;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TodoControllerEtagTest {
+
+    private static final MediaType CBOR = MediaType.APPLICATION_CBOR;
+
+    private final TodoService todoService = mock(TodoService.class);
+    private final TodoDataVersion dataVersion = mock(TodoDataVersion.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        when(dataVersion.isTracking()).thenReturn(true);
+        when(dataVersion.etag(any(Object[].class))).thenAnswer(invocation -> "W/\"1.1-" + Arrays.stream(invocation.getArguments())
+                .map(String::valueOf).collect(Collectors.joining("-")) + "\"");
+        when(todoService.findTodoById(1L)).thenReturn(Optional.of(todo(3)));
+        when(todoService.patchTodo(eq(1L), any())).thenReturn(Optional.of(todo(4)));
+
+        TodoController controller = new TodoController(todoService, mock(SolrTodoService.class),
+                mock(TodoViewService.class), mock(TodoSearchService.class), mock(TodoListRenderer.class), dataVersion, 50, 500);
+        Jackson2ObjectMapperBuilder json = Jackson2ObjectMapperBuilder.json()
+                .modules(ApiFormatConfig.fieldsFilterModule())
+                .filters(ApiFormatConfig.fieldsFilter(null));
+        Jackson2ObjectMapperBuilder cbor = Jackson2ObjectMapperBuilder.json()
+                .modules(ApiFormatConfig.fieldsFilterModule())
+                .filters(ApiFormatConfig.fieldsFilter(null))
+                .factory(new CBORFactory());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new FieldsResponseBodyAdvice())
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(json.build()),
+                        new MappingJackson2CborHttpMessageConverter(cbor.build()))
+                .addFilters(new VaryAcceptFilter())
+                .build();
+    }
+
+    @Test
+    void itemEtagRoundTripsThroughIfMatch() throws Exception {
+        String etag = mockMvc.perform(get("/api/todos/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(patch("/api/todos/1").header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"completed\":true}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+
+        assertThat(patchedVersion()).isEqualTo(3L);
+    }
+
+    @Test
+    void otherRepresentationsHaveTheirOwnEtagsThatStillRoundTrip() throws Exception {
+        String cborEtag = mockMvc.perform(get("/api/todos/1").accept(CBOR))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String fieldsEtag = mockMvc.perform(get("/api/todos/1").param("fields", "title, id"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String sameFieldsEtag = mockMvc.perform(get("/api/todos/1").param("fields", "id,title,id"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(cborEtag).isEqualTo("\"3-cbor\"");
+        assertThat(fieldsEtag).startsWith("\"3-f").isNotEqualTo(cborEtag).isEqualTo(sameFieldsEtag);
+
+        // 別の形式の ETag で 304 にはならない
+        mockMvc.perform(get("/api/todos/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\"").accept(CBOR))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch("/api/todos/1").header(HttpHeaders.IF_MATCH, cborEtag)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"completed\":true}"))
+                .andExpect(status().isOk());
+        assertThat(patchedVersion()).isEqualTo(3L);
+    }
+
+    @Test
+    void notModifiedResponsesVaryOnAccept() throws Exception {
+        mockMvc.perform(get("/api/todos/1").header(HttpHeaders.IF_NONE_MATCH, "\"3-cbor\"").accept(CBOR))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+    }
+
+    @Test
+    void listEtagsDependOnTheRepresentation() throws Exception {
+        String json = mockMvc.perform(get("/api/todos/counts"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String cbor = mockMvc.perform(get("/api/todos/counts").accept(CBOR))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String fields = mockMvc.perform(get("/api/todos/counts").param("fields", "open"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(json).isEqualTo("W/\"1.1-counts\"");
+        assertThat(cbor).isNotEqualTo(json);
+        assertThat(fields).isNotEqualTo(json).isNotEqualTo(cbor);
+    }
+
+    @Test
+    void listsHaveNoEtagWhileChangesAreNotTracked() throws Exception {
+        when(dataVersion.isTracking()).thenReturn(false);
+
+        mockMvc.perform(get("/api/todos/counts").header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void malformedIfMatchIsRejected() throws Exception {
+        mockMvc.perform(patch("/api/todos/1").header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"completed\":true}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Long patchedVersion() {
+        ArgumentCaptor<TodoPatch> patch = ArgumentCaptor.forClass(TodoPatch.class);
+        verify(todoService).patchTodo(eq(1L), patch.capture());
+        return patch.getValue().version();
+    }
+
+    private static Todo todo(long version) {
+        Todo todo = new Todo("title", "description", false);
+        todo.setId(1L);
+        todo.setVersion(version);
+        return todo;
+    }
+}
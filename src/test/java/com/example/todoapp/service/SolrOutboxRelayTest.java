@@ -0,0 +1,217 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.entity.SolrOutboxEntry;
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.SolrTodoItem;
+import com.example.todoapp.repository.JobCheckpointRepository;
+import com.example.todoapp.repository.SolrOutboxRepository;
+import com.example.todoapp.repository.TodoArchiveRepository;
+import com.example.todoapp.repository.TodoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class SolrOutboxRelayTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final SolrOutboxRepository outboxRepository = mock(SolrOutboxRepository.class);
+    private final TodoRepository todoRepository = mock(TodoRepository.class);
+    private final TodoArchiveRepository archiveRepository = mock(TodoArchiveRepository.class);
+    private final JobCheckpointRepository checkpointRepository = mock(JobCheckpointRepository.class);
+    private final SolrTodoService solrTodoService = mock(SolrTodoService.class);
+    private final CountingTransactionManager transactionManager = new CountingTransactionManager();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SolrOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new SolrOutboxRelay(outboxRepository, todoRepository, archiveRepository, checkpointRepository,
+                solrTodoService, transactionManager, meterRegistry, 500, 200, MAX_ATTEMPTS, 1000, 8000);
+        when(checkpointRepository.tryAcquireLease(eq("solr-outbox-relay"), anyLong())).thenReturn(Optional.of(42L));
+    }
+
+    @Test
+    void sendsCurrentStateOncePerTodoAndDeletesSentEntries() throws Exception {
+        givenEntries(entry(1, 10, SolrOutboxEntry.Operation.INDEX, 0),
+                entry(2, 10, SolrOutboxEntry.Operation.INDEX, 0),
+                entry(3, 11, SolrOutboxEntry.Operation.DELETE, 0));
+        when(todoRepository.findAllById(List.of(10L, 11L))).thenReturn(List.of(todo(10)));
+        when(archiveRepository.findAllById(List.of(11L))).thenReturn(List.of());
+        when(solrTodoService.indexTodoItem(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(solrTodoService.deleteTodoItem("11")).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        verify(solrTodoService).indexTodoItem(any());
+        verify(solrTodoService).deleteTodoItem("11");
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L, 2L, 3L));
+        verify(outboxRepository, never()).markFailed(anyCollection(), anyString(), any());
+        verify(checkpointRepository).releaseLease("solr-outbox-relay", 42L);
+    }
+
+    @Test
+    void staleIndexEntryForAnArchivedTodoSendsTheArchivedDocument() throws Exception {
+        givenEntries(entry(1, 12, SolrOutboxEntry.Operation.INDEX, 4));
+        when(todoRepository.findAllById(List.of(12L))).thenReturn(List.of());
+        when(archiveRepository.findAllById(List.of(12L))).thenReturn(List.of(todo(12)));
+        ArgumentCaptor<SolrTodoItem> item = ArgumentCaptor.forClass(SolrTodoItem.class);
+        when(solrTodoService.indexTodoItem(item.capture())).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay.relay();
+
+        assertThat(item.getValue().isArchived()).isTrue();
+        verify(solrTodoService, never()).deleteTodoItem(anyString());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+    }
+
+    @Test
+    void failedDocumentIsRetriedLaterWithBackoffWhileOthersAreDeleted() throws Exception {
+        givenEntries(entry(1, 10, SolrOutboxEntry.Operation.INDEX, 1),
+                entry(2, 11, SolrOutboxEntry.Operation.INDEX, 0));
+        when(todoRepository.findAllById(List.of(10L, 11L))).thenReturn(List.of(todo(10), todo(11)));
+        when(solrTodoService.indexTodoItem(any())).thenAnswer(invocation -> {
+            SolrTodoItem item = invocation.getArgument(0);
+            return "10".equals(item.getId())
+                    ? CompletableFuture.failedFuture(new IOException("400 Bad Request"))
+                    : CompletableFuture.completedFuture(null);
+        });
+        long before = System.currentTimeMillis();
+
+        relay.relay();
+
+        long after = System.currentTimeMillis();
+        ArgumentCaptor<Date> nextAttemptAt = ArgumentCaptor.forClass(Date.class);
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(2L));
+        verify(outboxRepository).markFailed(eq(List.of(1L)), contains("400 Bad Request"), nextAttemptAt.capture());
+        // 2回目の失敗なので retry-backoff-ms の2倍あける
+        assertThat(nextAttemptAt.getValue().getTime()).isBetween(before + 2000, after + 2000);
+        verify(outboxRepository, never()).markDeadLettered(anyCollection(), anyString(), any());
+        assertThat(meterRegistry.counter("solr.outbox.relay.failures").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() throws Exception {
+        givenEntries(entry(1, 10, SolrOutboxEntry.Operation.INDEX, MAX_ATTEMPTS - 1));
+        when(todoRepository.findAllById(List.of(10L))).thenReturn(List.of(todo(10)));
+        when(solrTodoService.indexTodoItem(any())).thenReturn(CompletableFuture.failedFuture(new IOException("rejected")));
+
+        relay.relay();
+
+        verify(outboxRepository).markDeadLettered(eq(List.of(1L)), contains("rejected"), any());
+        verify(outboxRepository, never()).markFailed(anyCollection(), anyString(), any());
+        verify(outboxRepository, never()).deleteAllByIdInBatch(any());
+        assertThat(meterRegistry.counter("solr.outbox.dead-lettered").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void unansweredSendCountsAsFailureAfterTheTimeout() throws Exception {
+        givenEntries(entry(1, 10, SolrOutboxEntry.Operation.INDEX, 0));
+        when(todoRepository.findAllById(List.of(10L))).thenReturn(List.of(todo(10)));
+        when(solrTodoService.indexTodoItem(any())).thenReturn(new CompletableFuture<>());
+
+        relay.relay();
+
+        verify(outboxRepository).markFailed(eq(List.of(1L)), startsWith("Timed out"), any());
+    }
+
+    @Test
+    void sendsOutsideAnyTransaction() throws Exception {
+        givenEntries(entry(1, 10, SolrOutboxEntry.Operation.INDEX, 0));
+        when(todoRepository.findAllById(List.of(10L))).thenReturn(List.of(todo(10)));
+        when(solrTodoService.indexTodoItem(any())).thenAnswer(invocation -> {
+            assertThat(transactionManager.open).isZero();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        relay.relay();
+
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+        assertThat(transactionManager.open).isZero();
+    }
+
+    @Test
+    void doesNothingWhileAnotherInstanceHoldsTheLease() {
+        when(checkpointRepository.tryAcquireLease(eq("solr-outbox-relay"), anyLong())).thenReturn(Optional.empty());
+
+        relay.relay();
+
+        verifyNoInteractions(outboxRepository, solrTodoService);
+        verify(checkpointRepository, never()).releaseLease(anyString(), anyLong());
+    }
+
+    @Test
+    void backoffDoublesUpToTheLimit() {
+        assertThat(relay.backoffMs(1)).isEqualTo(1000);
+        assertThat(relay.backoffMs(2)).isEqualTo(2000);
+        assertThat(relay.backoffMs(3)).isEqualTo(4000);
+        assertThat(relay.backoffMs(5)).isEqualTo(8000);
+        assertThat(relay.backoffMs(100)).isEqualTo(8000);
+    }
+
+    private void givenEntries(SolrOutboxEntry... entries) {
+        when(outboxRepository.findReadyToSend(any(), any())).thenReturn(List.of(entries));
+    }
+
+    private static SolrOutboxEntry entry(long id, long todoId, SolrOutboxEntry.Operation operation, int attempts) {
+        SolrOutboxEntry entry = new SolrOutboxEntry(todoId, operation);
+        ReflectionTestUtils.setField(entry, "id", id);
+        ReflectionTestUtils.setField(entry, "attempts", attempts);
+        return entry;
+    }
+
+    private static Todo todo(long id) {
+        Todo todo = new Todo("title " + id, "description", false);
+        todo.setId(id);
+        todo.setCreatedAt(new Date());
+        todo.setUpdatedAt(new Date());
+        return todo;
+    }
+
+    // 開いているトランザクションの数を数えるだけのトランザクションマネージャー
+    private static final class CountingTransactionManager implements PlatformTransactionManager {
+        private int open;
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            open++;
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            open--;
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            open--;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.entity.SolrOutboxEntry;
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.SolrTodoItem;
+import com.example.todoapp.repository.JobCheckpointRepository;
+import com.example.todoapp.repository.SolrOutboxRepository;
+import com.example.todoapp.repository.TodoArchiveRepository;
+import com.example.todoapp.repository.TodoRepository;
+import com.example.todoapp.repository.TodoTombstoneRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SolrReconcilerTest {
+
+    private final TodoRepository todoRepository = mock(TodoRepository.class);
+    private final TodoArchiveRepository archiveRepository = mock(TodoArchiveRepository.class);
+    private final TodoTombstoneRepository tombstoneRepository = mock(TodoTombstoneRepository.class);
+    private final JobCheckpointRepository checkpointRepository = mock(JobCheckpointRepository.class);
+    private final SolrOutboxRepository outboxRepository = mock(SolrOutboxRepository.class);
+    private final SolrTodoService solrTodoService = mock(SolrTodoService.class);
+    private final List<SolrOutboxEntry> queued = new ArrayList<>();
+    private final NoOpTransactionManager transactionManager = new NoOpTransactionManager();
+    private SolrReconciler reconciler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet locked = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(locked);
+        when(locked.next()).thenReturn(true);
+        when(locked.getBoolean(1)).thenReturn(true);
+
+        when(checkpointRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(todoRepository.findUpdatedAfter(any(), anyLong(), any(), anyInt())).thenReturn(List.of());
+        when(tombstoneRepository.settledUntil(anyLong())).thenReturn(new Date());
+        when(outboxRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<SolrOutboxEntry> entries = invocation.getArgument(0);
+            queued.addAll(entries);
+            return entries;
+        });
+
+        reconciler = new SolrReconciler(todoRepository, archiveRepository, tombstoneRepository, checkpointRepository,
+                outboxRepository, solrTodoService, dataSource, transactionManager, new SimpleMeterRegistry(),
+                true, 60_000, 500, 100, Duration.ofDays(1), Duration.ofDays(7));
+    }
+
+    @Test
+    void archivedTodosAreMarkedArchivedAndDeletedTodosAreRemoved() throws Exception {
+        givenTombstones(1, 2, 3, 4, 5);
+        when(archiveRepository.findAllById(Set.of(1L, 2L, 3L, 4L, 5L))).thenReturn(List.of(todo(1), todo(2), todo(5)));
+        when(solrTodoService.getTodoItems(List.of("1", "2", "3", "4", "5"))).thenReturn(Map.of(
+                "1", item(1, false),  // アーカイブ済みなのに通常の検索に出ている
+                "2", item(2, true),   // アーカイブ済みの印が立っている
+                "3", item(3, false))); // 削除済みなのに残っている
+        // 4: 削除済みで Solr にも無い / 5: アーカイブ済みで Solr に無い
+
+        long repaired = reconciler.reconcile();
+
+        assertThat(repaired).isEqualTo(3);
+        assertThat(queued).extracting(SolrOutboxEntry::getTodoId, SolrOutboxEntry::getOperation).containsExactly(
+                tuple(1L, SolrOutboxEntry.Operation.ARCHIVE),
+                tuple(3L, SolrOutboxEntry.Operation.DELETE),
+                tuple(5L, SolrOutboxEntry.Operation.ARCHIVE));
+        verify(checkpointRepository).save(argThat(checkpoint -> "solr-reconcile-deleted".equals(checkpoint.getName())));
+    }
+
+    @Test
+    void deletedPositionIsNotAdvancedWhileSolrIsUnavailable() throws Exception {
+        givenTombstones(1);
+        when(archiveRepository.findAllById(Set.of(1L))).thenReturn(List.of());
+        when(solrTodoService.getTodoItems(anyCollection())).thenThrow(new IOException("Connection refused"));
+
+        long repaired = reconciler.reconcile();
+
+        assertThat(repaired).isZero();
+        assertThat(queued).isEmpty();
+        verify(checkpointRepository, never()).save(argThat(checkpoint -> "solr-reconcile-deleted".equals(checkpoint.getName())));
+    }
+
+    @Test
+    void solrIsQueriedOutsideTheTransactions() throws Exception {
+        givenTombstones(1);
+        when(archiveRepository.findAllById(Set.of(1L))).thenReturn(List.of());
+        List<Integer> openDuringGet = new ArrayList<>();
+        when(solrTodoService.getTodoItems(anyCollection())).thenAnswer(invocation -> {
+            openDuringGet.add(transactionManager.open);
+            return Map.of("1", item(1, false));
+        });
+
+        reconciler.reconcile();
+
+        assertThat(openDuringGet).containsExactly(0);
+        assertThat(queued).extracting(SolrOutboxEntry::getTodoId).containsExactly(1L);
+    }
+
+    private void givenTombstones(long... ids) {
+        List<TodoTombstoneRepository.Tombstone> tombstones = new ArrayList<>();
+        for (long id : ids) {
+            tombstones.add(new TodoTombstoneRepository.Tombstone(id, new Date(1000 + id)));
+        }
+        when(tombstoneRepository.findDeletedAfter(any(), anyLong(), any(), anyInt())).thenReturn(tombstones);
+    }
+
+    private static Todo todo(long id) {
+        Todo todo = new Todo("title " + id, "description", true);
+        todo.setId(id);
+        return todo;
+    }
+
+    private static SolrTodoItem item(long id, boolean archived) {
+        SolrTodoItem item = SolrTodoItemMapper.toSolrTodoItem(todo(id));
+        item.setArchived(archived);
+        return item;
+    }
+
+    // コールバックをそのまま実行するだけのトランザクションマネージャー（開いているトランザクションの数だけ数える）
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+
+        private int open;
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            open++;
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            open--;
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            open--;
+        }
+    }
+}
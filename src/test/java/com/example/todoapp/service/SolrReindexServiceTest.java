@@ -0,0 +1,116 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.entity.JobCheckpoint;
+import com.example.todoapp.model.InvalidRequestException;
+import com.example.todoapp.model.ReindexStatus;
+import com.example.todoapp.repository.JobCheckpointRepository;
+import com.example.todoapp.repository.SolrOutboxRepository;
+import com.example.todoapp.repository.TodoRepository;
+import com.example.todoapp.repository.TodoTombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SolrReindexServiceTest {
+
+    private final TodoRepository todoRepository = mock(TodoRepository.class);
+    private final TodoTombstoneRepository tombstoneRepository = mock(TodoTombstoneRepository.class);
+    private final JobCheckpointRepository checkpointRepository = mock(JobCheckpointRepository.class);
+    private final SolrTodoService solrTodoService = mock(SolrTodoService.class);
+    private final Map<String, JobCheckpoint> checkpoints = new ConcurrentHashMap<>();
+    private SolrReindexService reindexService;
+
+    @BeforeEach
+    void setUp() {
+        when(todoRepository.findMinId()).thenReturn(1L);
+        when(todoRepository.findMaxId()).thenReturn(10L);
+        when(todoRepository.findByIdBetweenOrderById(anyLong(), anyLong())).thenReturn(List.of());
+        when(todoRepository.findIdsUpdatedSince(any())).thenReturn(List.of());
+        when(tombstoneRepository.findIdsDeletedSince(any())).thenReturn(List.of());
+        when(checkpointRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(checkpoints.get(invocation.<String>getArgument(0))));
+        when(checkpointRepository.save(any())).thenAnswer(invocation -> {
+            JobCheckpoint checkpoint = invocation.getArgument(0);
+            checkpoints.put(checkpoint.getName(), checkpoint);
+            return checkpoint;
+        });
+
+        reindexService = new SolrReindexService(todoRepository, tombstoneRepository, mock(SolrOutboxRepository.class),
+                checkpointRepository, solrTodoService, new NoOpTransactionManager(), 2, 4, 5, 60_000);
+    }
+
+    @Test
+    void resumedCleanRebuildDeletesWithTheFirstRunsStartVersion() throws Exception {
+        checkpoints.put("solr-reindex", new JobCheckpoint("solr-reindex", 5));
+        checkpoints.put("solr-reindex-clean-version", new JobCheckpoint("solr-reindex-clean-version", 42));
+
+        ReindexStatus status = awaitFinished(reindexService.start(null, null, true, false));
+
+        assertThat(status.state()).isEqualTo("COMPLETED");
+        assertThat(status.fromId()).isEqualTo(6);
+        verify(solrTodoService, never()).latestVersion();
+        verify(solrTodoService).deleteDocumentsNotUpdatedSince(42);
+    }
+
+    @Test
+    void freshCleanRebuildRecordsItsStartVersion() throws Exception {
+        when(solrTodoService.latestVersion()).thenReturn(7L);
+
+        assertThat(awaitFinished(reindexService.start(null, null, false, true)).state()).isEqualTo("COMPLETED");
+
+        assertThat(checkpoints.get("solr-reindex-clean-version").getPosition()).isEqualTo(7);
+        verify(solrTodoService).deleteDocumentsNotUpdatedSince(7);
+    }
+
+    @Test
+    void resumingARunThatWasNotCleanWithCleanIsRejected() throws Exception {
+        assertThat(awaitFinished(reindexService.start(null, null, false, false)).state()).isEqualTo("COMPLETED");
+
+        assertThatThrownBy(() -> reindexService.start(null, null, true, true)).isInstanceOf(InvalidRequestException.class);
+        verify(solrTodoService, never()).deleteDocumentsNotUpdatedSince(anyLong());
+    }
+
+    private ReindexStatus awaitFinished(ReindexStatus started) throws InterruptedException {
+        ReindexStatus status = started;
+        for (int i = 0; i < 500 && ("RUNNING".equals(status.state()) || "STOPPING".equals(status.state())); i++) {
+            Thread.sleep(10);
+            status = reindexService.status();
+        }
+        return status;
+    }
+
+    // コールバックをそのまま実行するだけのトランザクションマネージャー
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
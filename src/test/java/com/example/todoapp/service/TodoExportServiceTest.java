@@ -0,0 +1,77 @@
+package com.example.todoapp.service;
+
+import com.example.todoapp.config.ApiFormatConfig;
+import com.example.todoapp.entity.Todo;
+import com.example.todoapp.model.SolrTodoItem;
+import com.example.todoapp.repository.TodoRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TodoExportServiceTest {
+
+    private final TodoRepository todoRepository = mock(TodoRepository.class);
+    private final SolrTodoService solrTodoService = mock(SolrTodoService.class);
+    // アプリと同じく fields フィルターを付けた ObjectMapper（エクスポートでは全部のプロパティを出す）
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .modules(ApiFormatConfig.fieldsFilterModule())
+            .filters(ApiFormatConfig.fieldsFilter(null))
+            .build();
+    private final TodoExportService exportService =
+            new TodoExportService(todoRepository, solrTodoService, mock(EntityManager.class), objectMapper);
+
+    @Test
+    void databaseExportWritesOneObjectPerLineWithoutSeparators() throws Exception {
+        when(todoRepository.streamAllByOrderById()).thenReturn(Stream.of(todo(1, "a", false), todo(2, "b", true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportFromDatabase(out);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"id\":1,\"title\":\"a\",\"description\":\"a detail\",\"completed\":false,"
+                        + "\"createdAt\":1000,\"updatedAt\":2000,\"version\":0}\n"
+                        + "{\"id\":2,\"title\":\"b\",\"description\":\"b detail\",\"completed\":true,"
+                        + "\"createdAt\":1000,\"updatedAt\":2000,\"version\":0}\n");
+    }
+
+    @Test
+    void solrExportUsesTheSameLineFormat() throws Exception {
+        when(solrTodoService.streamAllTodoItems(any())).thenAnswer(invocation -> {
+            Consumer<SolrTodoItem> consumer = invocation.getArgument(0);
+            consumer.accept(SolrTodoItemMapper.toSolrTodoItem(todo(1, "a", false)));
+            consumer.accept(SolrTodoItemMapper.toSolrTodoItem(todo(2, "b", true)));
+            return 2L;
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportFromSolr(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).startsWith("{\"id\":\"1\"");
+        assertThat(lines[1]).startsWith("{\"id\":\"2\"");
+        assertThat(lines[2]).isEmpty(); // 最後の行も改行で終わる
+    }
+
+    private static Todo todo(long id, String title, boolean completed) {
+        Todo todo = new Todo(title, title + " detail", completed);
+        todo.setId(id);
+        todo.setCreatedAt(new Date(1000));
+        todo.setUpdatedAt(new Date(2000));
+        todo.setVersion(0L);
+        return todo;
+    }
+}